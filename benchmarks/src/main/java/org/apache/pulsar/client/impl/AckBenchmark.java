@@ -0,0 +1,108 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronous acknowledgement throughput of 16 worker threads, with and without ack coalescing. {@code acknowledge}
+ * acks messages each thread received upfront, so only the ack path is measured, {@code receiveAndAcknowledge} runs
+ * the full worker loop. Sub-consumers have an endless backlog and acks end in the grouping tracker of the
+ * sub-consumer, which never reaches a broker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class AckBenchmark {
+    private static final int MESSAGES_PER_THREAD = 1000;
+
+    @Param({"10", "100"})
+    public int topics;
+
+    @Param({"0", "100"})
+    public long ackCoalesceTimeMs;
+
+    private OfflinePulsarClient client;
+    private InMemoryWeightedConsumer<byte[]> consumer;
+
+    @Setup
+    public void setup() throws Exception {
+        client = new OfflinePulsarClient();
+        WeightedConsumerConfiguration weightConf = BenchmarkTopics.configuration(topics,
+                WeightedConsumerConfiguration.DistributionStrategy.LINEAR);
+        weightConf.setAckCoalesceTimeMs(ackCoalesceTimeMs);
+        consumer = InMemoryWeightedConsumer.subscribe(client.getClient(), weightConf, Long.MAX_VALUE);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        consumer.close();
+        client.close();
+    }
+
+    /**
+     * Messages received by a worker thread before the measurement, acked over and over
+     */
+    @State(Scope.Thread)
+    public static class Received {
+        private Message<?>[] messages;
+        private int next;
+
+        @Setup
+        public void setup(AckBenchmark state) throws PulsarClientException {
+            messages = new Message[MESSAGES_PER_THREAD];
+            for (int i = 0; i < messages.length; i++) {
+                messages[i] = state.consumer.receive();
+            }
+        }
+
+        private Message<?> nextMessage() {
+            Message<?> message = messages[next];
+            next = next + 1 == messages.length ? 0 : next + 1;
+            return message;
+        }
+    }
+
+    @Benchmark
+    public void acknowledge(Received received) throws PulsarClientException {
+        consumer.acknowledge(received.nextMessage());
+    }
+
+    @Benchmark
+    public void receiveAndAcknowledge() throws PulsarClientException {
+        consumer.acknowledge(consumer.receive());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receive throughput of one consumer shared by 1, 8 and 64 receiving threads, with local receive queues off (batch
+ * size 0) and on. Sub-consumers have an endless backlog, so throughput is bound by contention on the shared queue and
+ * by the pinned executor refilling it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConcurrentReceiveBenchmark {
+
+    @Param({"10", "100"})
+    public int topics;
+
+    @Param({"0", "32"})
+    public int localReceiveBatchSize;
+
+    private OfflinePulsarClient client;
+    private InMemoryWeightedConsumer<byte[]> consumer;
+
+    @Setup
+    public void setup() throws Exception {
+        client = new OfflinePulsarClient();
+        WeightedConsumerConfiguration weightConf = BenchmarkTopics.configuration(topics,
+                WeightedConsumerConfiguration.DistributionStrategy.LINEAR);
+        weightConf.setLocalReceiveBatchSize(localReceiveBatchSize);
+        consumer = InMemoryWeightedConsumer.subscribe(client.getClient(), weightConf, Long.MAX_VALUE);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        consumer.close();
+        client.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Message<byte[]> receive1Thread() throws PulsarClientException {
+        return consumer.receive();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Message<byte[]> receive8Threads() throws PulsarClientException {
+        return consumer.receive();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Message<byte[]> receive64Threads() throws PulsarClientException {
+        return consumer.receive();
+    }
+}
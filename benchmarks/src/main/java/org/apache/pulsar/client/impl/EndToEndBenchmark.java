@@ -0,0 +1,101 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.api.SubscriptionInitialPosition;
+import org.apache.pulsar.client.api.SubscriptionType;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receive and acknowledge throughput of a weighted consumer subscribed through a real client to a
+ * {@link FakePulsarBroker}, so that lookups, partition metadata, flow permits and acks go over the binary protocol.
+ * Compared with {@link ReceiveBenchmark}, the difference is the cost of the client and connection paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+    private static final long BACKLOG = 1_000_000_000_000L;
+
+    @Param({"1", "10", "100"})
+    public int topics;
+
+    @Param({"1", "4"})
+    public int partitions;
+
+    private FakePulsarBroker broker;
+    private PulsarClient client;
+    private Consumer<byte[]> consumer;
+
+    @Setup
+    public void setup() throws Exception {
+        broker = FakePulsarBroker.start();
+        WeightedConsumerConfiguration weightConf = BenchmarkTopics.configuration(topics,
+                WeightedConsumerConfiguration.DistributionStrategy.LINEAR);
+        for (String topic : weightConf.getTopicWeights().keySet()) {
+            if (partitions > 1) {
+                broker.setPartitions(topic, partitions);
+            }
+            broker.publish(topic, BACKLOG);
+        }
+        client = PulsarClient.builder()
+                .serviceUrl(broker.getServiceUrl())
+                .statsInterval(0, TimeUnit.SECONDS)
+                .build();
+        consumer = new WeightedConsumerBuilder<>(client, Schema.BYTES)
+                .distributionStrategy(weightConf.getDistributionStrategy())
+                .topics(weightConf.getTopicWeights())
+                .subscriptionName("benchmark")
+                .subscriptionType(SubscriptionType.Shared)
+                .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
+                .subscribe();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        consumer.close();
+        client.close();
+        broker.close();
+    }
+
+    @Benchmark
+    public Message<byte[]> receiveAndAcknowledge() throws PulsarClientException {
+        Message<byte[]> message = consumer.receive();
+        consumer.acknowledge(message);
+        return message;
+    }
+}
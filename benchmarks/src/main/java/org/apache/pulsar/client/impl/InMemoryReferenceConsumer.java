@@ -0,0 +1,65 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reference multi topics consumer whose sub-consumers serve their backlog from memory, see
+ * {@link InMemoryConsumerImpl}. Weights only make it into the consumer properties, which the reference ignores
+ */
+class InMemoryReferenceConsumer<T> extends ReferenceMultiTopicsConsumerImpl<T> {
+    private volatile long backlog;
+
+    private InMemoryReferenceConsumer(PulsarClientImpl client, ConsumerConfigurationData<T> conf,
+                                      CompletableFuture<Consumer<T>> subscribeFuture, Schema<T> schema) {
+        super(client, conf, client.externalExecutorProvider(), subscribeFuture, schema, null, true);
+    }
+
+    /**
+     * @param client
+     * @param weightConf topics to subscribe
+     * @param backlog messages served by each sub-consumer, {@link Long#MAX_VALUE} for an endless backlog
+     */
+    static InMemoryReferenceConsumer<byte[]> subscribe(PulsarClientImpl client, WeightedConsumerConfiguration weightConf,
+                                                       long backlog) throws Exception {
+        List<String> topics = new ArrayList<>();
+        ConsumerConfigurationData<byte[]> conf = BenchmarkTopics.consumerConfiguration(client, weightConf, topics);
+        CompletableFuture<Consumer<byte[]>> subscribeFuture = new CompletableFuture<>();
+        InMemoryReferenceConsumer<byte[]> consumer = new InMemoryReferenceConsumer<>(client, conf, subscribeFuture,
+                Schema.BYTES);
+        consumer.backlog = backlog;
+        subscribeFuture.get(30, TimeUnit.SECONDS);
+        BenchmarkTopics.subscribeAll(topics, consumer::subscribeAsync);
+        return consumer;
+    }
+
+    @Override
+    ConsumerImpl<T> newSubConsumer(String topicName, ConsumerConfigurationData<T> configurationData, int partitionIndex,
+                                   CompletableFuture<Consumer<T>> subFuture, MessageId startMessageId, Schema<T> schema,
+                                   boolean createIfDoesNotExist, long startMessageRollbackDurationInSec) {
+        return new InMemoryConsumerImpl<>(client, topicName, configurationData, partitionIndex, subFuture, schema,
+                backlog);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bookkeeping of the shared queue, measured on a consumer whose sub-consumers have no backlog so that only the
+ * benchmark thread touches the queue. Messages cycle through the topics, so counters of all topics are exercised.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IncomingMessagesBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class IdleConsumer {
+        @Param({"1", "10", "100", "1000"})
+        public int topics;
+
+        private OfflinePulsarClient client;
+        InMemoryWeightedConsumer<byte[]> consumer;
+        private TopicMessageImpl<byte[]>[] messages;
+        private int next;
+
+        @Setup
+        @SuppressWarnings("unchecked")
+        public void setup() throws Exception {
+            client = new OfflinePulsarClient();
+            consumer = InMemoryWeightedConsumer.subscribe(client.getClient(),
+                    BenchmarkTopics.configuration(topics, WeightedConsumerConfiguration.DistributionStrategy.LINEAR), 0);
+            List<ConsumerImpl<byte[]>> subConsumers = consumer.getConsumers();
+            messages = new TopicMessageImpl[subConsumers.size()];
+            for (int i = 0; i < messages.length; i++) {
+                InMemoryConsumerImpl<byte[]> subConsumer = (InMemoryConsumerImpl<byte[]>) subConsumers.get(i);
+                messages[i] = new TopicMessageImpl<>(subConsumer.getTopic(), subConsumer.getTopicNameWithoutPartition(),
+                        subConsumer.nextMessage(), subConsumer);
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            consumer.close();
+            client.close();
+        }
+
+        TopicMessageImpl<byte[]> nextMessage() {
+            TopicMessageImpl<byte[]> message = messages[next];
+            next = next + 1 == messages.length ? 0 : next + 1;
+            return message;
+        }
+    }
+
+    /**
+     * Shared queue filled up to the size of the receiver queue before every invocation
+     */
+    @State(Scope.Thread)
+    public static class FullQueue {
+        @Setup(Level.Invocation)
+        public void fill(IdleConsumer state) {
+            for (int i = state.consumer.maxReceiverQueueSize; i > 0; i--) {
+                state.consumer.enqueueMessageAndCheckBatchReceive(state.nextMessage());
+            }
+        }
+    }
+
+    @Benchmark
+    public Message<byte[]> enqueueDequeue(IdleConsumer state) {
+        state.consumer.enqueueMessageAndCheckBatchReceive(state.nextMessage());
+        Message<byte[]> message = state.consumer.incomingMessages.poll();
+        state.consumer.messageProcessed(message);
+        return message;
+    }
+
+    // Runs long enough for the per invocation setup not to skew the measurement
+    @Benchmark
+    public void resetIncomingMessageSize(IdleConsumer state, FullQueue queue) {
+        state.consumer.resetIncomingMessageSize();
+    }
+}
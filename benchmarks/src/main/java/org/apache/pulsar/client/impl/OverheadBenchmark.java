@@ -0,0 +1,99 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What weighting costs over the reference multi topics consumer. Both consumers receive from identical in-memory
+ * sub-consumers with an endless backlog, so differences come from the consumers alone. Throughput and sampled
+ * receive latency, including its p99, are reported per consumer. Run with the gc profiler for allocations per
+ * message, which include the allocations of the pinned executor refilling the shared queue.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OverheadBenchmark {
+
+    public enum ConsumerType {
+        REFERENCE,
+        WEIGHTED,
+        WEIGHTED_STATS
+    }
+
+    @Param({"REFERENCE", "WEIGHTED", "WEIGHTED_STATS"})
+    public ConsumerType consumerType;
+
+    @Param({"1", "10", "100", "1000"})
+    public int topics;
+
+    private OfflinePulsarClient client;
+    private ConsumerBase<byte[]> consumer;
+
+    @Setup
+    public void setup() throws Exception {
+        client = new OfflinePulsarClient();
+        WeightedConsumerConfiguration weightConf = BenchmarkTopics.configuration(topics,
+                WeightedConsumerConfiguration.DistributionStrategy.LINEAR);
+        switch (consumerType) {
+            case REFERENCE:
+                consumer = InMemoryReferenceConsumer.subscribe(client.getClient(), weightConf, Long.MAX_VALUE);
+                break;
+            case WEIGHTED_STATS:
+                weightConf.setWeightedStats(true);
+                consumer = InMemoryWeightedConsumer.subscribe(client.getClient(), weightConf, Long.MAX_VALUE);
+                break;
+            default:
+                consumer = InMemoryWeightedConsumer.subscribe(client.getClient(), weightConf, Long.MAX_VALUE);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        consumer.close();
+        client.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Message<byte[]> receiveThroughput() throws PulsarClientException {
+        return consumer.receive();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Message<byte[]> receiveLatency() throws PulsarClientException {
+        return consumer.receive();
+    }
+}
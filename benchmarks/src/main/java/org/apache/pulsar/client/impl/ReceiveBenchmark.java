@@ -0,0 +1,81 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.Messages;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receive throughput of a weighted consumer over sub-consumers with an endless backlog. Every receive frees a slot in
+ * the shared queue, which resumes paused sub-consumers through receiveMessageFromConsumer on the pinned executor,
+ * so the measured path covers the threshold checks, counter updates and pause bookkeeping of the consumer.
+ * Batch receive is measured in batches of {@link BenchmarkTopics#BATCH_RECEIVE_SIZE} messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReceiveBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int topics;
+
+    @Param({"LINEAR", "EXPONENTIAL"})
+    public WeightedConsumerConfiguration.DistributionStrategy strategy;
+
+    private OfflinePulsarClient client;
+    private InMemoryWeightedConsumer<byte[]> consumer;
+
+    @Setup
+    public void setup() throws Exception {
+        client = new OfflinePulsarClient();
+        consumer = InMemoryWeightedConsumer.subscribe(client.getClient(),
+                BenchmarkTopics.configuration(topics, strategy), Long.MAX_VALUE);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        consumer.close();
+        client.close();
+    }
+
+    @Benchmark
+    public Message<byte[]> receive() throws PulsarClientException {
+        return consumer.receive();
+    }
+
+    @Benchmark
+    public Messages<byte[]> batchReceive() throws PulsarClientException {
+        return consumer.batchReceive();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.impl.weight.TopicThresholdDistribution;
+import org.apache.pulsar.client.impl.weight.TopicThresholdDistributionImpl;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Threshold lookups, done on every message received from a sub-consumer. Lookups cycle through the topics so that
+ * the cost of a large map is not hidden behind a single hot entry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThresholdDistributionBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int topics;
+
+    @Param({"LINEAR", "EXPONENTIAL"})
+    public WeightedConsumerConfiguration.DistributionStrategy strategy;
+
+    private TopicThresholdDistribution distribution;
+    private String[] topicNames;
+    private int next;
+
+    @Setup
+    public void setup() {
+        distribution = TopicThresholdDistributionImpl.loadFromConf(BenchmarkTopics.configuration(topics, strategy));
+        topicNames = BenchmarkTopics.names(topics);
+    }
+
+    @Benchmark
+    public int getValue() {
+        String topic = topicNames[next];
+        next = next + 1 == topicNames.length ? 0 : next + 1;
+        return distribution.getValue(topic);
+    }
+}
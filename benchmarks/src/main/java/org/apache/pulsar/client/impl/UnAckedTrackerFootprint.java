@@ -0,0 +1,95 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Locale;
+import java.util.function.BiFunction;
+
+/**
+ * Measures the heap retained per tracked message by {@link CompactUnAckedTopicMessageTracker} and by the
+ * {@link UnAckedTopicMessageTracker} of the multi topics consumer, as the used heap after a full collection with the
+ * tracker holding the given number of ids, spread over the given number of partitions, minus the used heap before.
+ * Trackers run on a virtual timer which is never advanced, so no id expires while measuring. Run with a fixed heap,
+ * e.g. -Xms2g -Xmx2g, for stable figures.
+ * Arguments: number of ids, 500000 by default, and number of partitions, 100 by default.
+ */
+public class UnAckedTrackerFootprint {
+    private static final long ACK_TIMEOUT_MS = 30_000;
+    private static final long TICK_DURATION_MS = 1_000;
+    // neither tracker reaches the consumer before a tick, which never comes
+    private static final BiFunction<PulsarClientImpl, ConsumerConfigurationData<byte[]>, UnAckedMessageTracker> STOCK =
+            (client, conf) -> new UnAckedTopicMessageTracker(client, null, conf);
+    private static final BiFunction<PulsarClientImpl, ConsumerConfigurationData<byte[]>, UnAckedMessageTracker> COMPACT =
+            (client, conf) -> new CompactUnAckedTopicMessageTracker(client, null, conf);
+
+    public static void main(String[] args) throws Exception {
+        int ids = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int partitions = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        try (OfflinePulsarClient offlineClient = new OfflinePulsarClient(new VirtualTimeExecutor())) {
+            PulsarClientImpl client = offlineClient.getClient();
+            ConsumerConfigurationData<byte[]> conf = new ConsumerConfigurationData<>();
+            conf.setAckTimeoutMillis(ACK_TIMEOUT_MS);
+            conf.setTickDurationMillis(TICK_DURATION_MS);
+            // warm up once so that class loading is not accounted to the first tracker measured
+            measure(client, conf, Math.min(ids, 10_000), partitions, COMPACT);
+            measure(client, conf, Math.min(ids, 10_000), partitions, STOCK);
+            report("UnAckedTopicMessageTracker", ids,
+                    measure(client, conf, ids, partitions, STOCK));
+            report("CompactUnAckedTopicMessageTracker", ids,
+                    measure(client, conf, ids, partitions, COMPACT));
+        }
+        System.exit(0);
+    }
+
+    private static long measure(PulsarClientImpl client, ConsumerConfigurationData<byte[]> conf, int ids,
+                                int partitions,
+                                BiFunction<PulsarClientImpl, ConsumerConfigurationData<byte[]>, UnAckedMessageTracker> factory) {
+        String[] partitionNames = new String[partitions];
+        for (int i = 0; i < partitions; i++) {
+            partitionNames[i] = BenchmarkTopics.name(i % 10) + "-partition-" + i / 10;
+        }
+        long before = usedHeap();
+        UnAckedMessageTracker tracker = factory.apply(client, conf);
+        for (int i = 0; i < ids; i++) {
+            int partition = i % partitions;
+            // ids as the consumer hands them out, the stock tracker retains them while the compact one packs them
+            tracker.add(new TopicMessageIdImpl(partitionNames[partition], BenchmarkTopics.name(partition % 10),
+                    new MessageIdImpl(1000 + partition, i / partitions, partition / 10)));
+        }
+        long retained = usedHeap() - before;
+        if (tracker.size() != ids) {
+            throw new IllegalStateException("Tracker holds " + tracker.size() + " ids, expected " + ids);
+        }
+        tracker.close();
+        return retained;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void report(String tracker, int ids, long retained) {
+        System.out.printf(Locale.ROOT, "%-34s %8.1f bytes per message, %7.1f MB for %d ids%n", tracker,
+                (double) retained / ids, retained / (1024.0 * 1024.0), ids);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.common.api.proto.CommandAck.AckType;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Coalesces individual acknowledgements per partition and sends them as list acknowledgements to the partition
+ * consumer, either once the configured count is buffered or on the periodic flush. The partition consumer is looked
+ * up once per batch. As with the acknowledgments grouping tracker of the partition consumer, an acknowledgement
+ * completes as soon as it is buffered and the message is no longer tracked for ack timeout, a failure to send the
+ * batch is only logged and the broker redelivers the messages. It is therefore not used when ack receipt is enabled.
+ * Acks of a partition which is gone fail right away instead of being buffered.
+ */
+class AckCoalescer {
+    private static final Logger log = LoggerFactory.getLogger(AckCoalescer.class);
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+    private final int maxSize;
+    private final Function<String, ConsumerImpl<?>> consumerLookup;
+    private final UnAckedMessageTracker unAckedMessageTracker;
+    private final ConcurrentHashMap<String, Batch> batches = new ConcurrentHashMap<>();
+
+    AckCoalescer(int maxSize, Function<String, ConsumerImpl<?>> consumerLookup,
+                 UnAckedMessageTracker unAckedMessageTracker) {
+        this.maxSize = maxSize;
+        this.consumerLookup = consumerLookup;
+        this.unAckedMessageTracker = unAckedMessageTracker;
+    }
+
+    CompletableFuture<Void> add(TopicMessageIdImpl topicMessageId) {
+        unAckedMessageTracker.remove(topicMessageId);
+        String partition = topicMessageId.getTopicPartitionName();
+        Batch batch = batches.get(partition);
+        if (batch == null) {
+            if (consumerLookup.apply(partition) == null) {
+                return FutureUtil.failedFuture(new PulsarClientException.NotConnectedException());
+            }
+            batch = batches.computeIfAbsent(partition, key -> new Batch());
+        }
+        List<TopicMessageIdImpl> full = null;
+        synchronized (batch) {
+            // the partition is being removed, its pending acks were sent already, send this one along
+            if (batch.closed) {
+                full = Collections.singletonList(topicMessageId);
+            } else {
+                batch.messageIds.add(topicMessageId);
+                if (batch.messageIds.size() >= maxSize) {
+                    full = batch.drain();
+                }
+            }
+        }
+        if (full != null) {
+            send(partition, full);
+        }
+        return COMPLETED;
+    }
+
+    void flush() {
+        batches.forEach((partition, batch) -> {
+            // a batch created while its partition was being removed
+            if (consumerLookup.apply(partition) == null) {
+                removePartition(partition);
+                return;
+            }
+            List<TopicMessageIdImpl> pending;
+            synchronized (batch) {
+                if (batch.messageIds.isEmpty()) {
+                    return;
+                }
+                pending = batch.drain();
+            }
+            send(partition, pending);
+        });
+    }
+
+    // acks of a removed partition are flushed, they would fail anyway if the partition consumer is gone
+    void removePartition(String partition) {
+        Batch batch = batches.remove(partition);
+        if (batch != null) {
+            List<TopicMessageIdImpl> pending;
+            synchronized (batch) {
+                batch.closed = true;
+                pending = batch.drain();
+            }
+            send(partition, pending);
+        }
+    }
+
+    private void send(String partition, List<TopicMessageIdImpl> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        ConsumerImpl<?> consumer = consumerLookup.apply(partition);
+        if (consumer == null) {
+            log.warn("Dropped {} coalesced acks of {}, the partition consumer is gone", pending.size(), partition);
+            return;
+        }
+        List<MessageId> innerIds = new ArrayList<>(pending.size());
+        pending.forEach(topicMessageId -> innerIds.add(topicMessageId.getInnerMessageId()));
+        consumer.doAcknowledgeWithTxn(innerIds, AckType.Individual, Collections.emptyMap(), null)
+                .whenComplete((ignore, ex) -> {
+                    if (ex != null) {
+                        log.warn("Failed to send {} coalesced acks of {}: {}", pending.size(), partition, ex.toString());
+                    }
+                });
+    }
+
+    private static class Batch {
+        private List<TopicMessageIdImpl> messageIds = new ArrayList<>();
+        private boolean closed;
+
+        // swaps out the buffered acks, must be invoked holding the lock of the batch
+        private List<TopicMessageIdImpl> drain() {
+            List<TopicMessageIdImpl> pending = messageIds;
+            messageIds = new ArrayList<>();
+            return pending;
+        }
+    }
+}
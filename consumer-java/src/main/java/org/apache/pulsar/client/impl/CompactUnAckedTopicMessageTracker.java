@@ -0,0 +1,426 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
+import org.apache.pulsar.shade.io.netty.util.Timeout;
+import org.apache.pulsar.shade.io.netty.util.TimerTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Unacked message tracker of the weighted consumer which holds message ids in primitive form. Every id is packed
+ * into three longs: ledger id, entry id and a meta long made of the slot of the topic partition, the batch size and
+ * the batch index. Ids are kept in a single open addressing table, in which every id is also linked into the bucket of
+ * the tick it expires on. Adding or removing an id takes a single lookup whatever the number of buckets, and buckets
+ * are rotated the same way as the time partitions of {@link UnAckedMessageTracker}, so the timeout redelivery
+ * semantics stay the same.
+ * Chunked messages are tracked by the id of their last chunk.
+ * Topics can have ack timeouts of their own, in which case their ids are added to the bucket which expires after
+ * their timeout instead of the newest one.
+ */
+public class CompactUnAckedTopicMessageTracker extends UnAckedMessageTracker {
+    private static final Logger log = LoggerFactory.getLogger(CompactUnAckedTopicMessageTracker.class);
+    private static final int BATCH_BITS = 20;
+    private static final long BATCH_MASK = (1L << BATCH_BITS) - 1;
+    private static final int MAX_SLOTS = 1 << 24;
+    // default tick duration of the consumer configuration
+    private static final long DEFAULT_TICK_DURATION_MS = 1000;
+
+    private final PulsarClientImpl client;
+    private final ConsumerBase<?> consumerBase;
+    private final long tickMs;
+    private final int bucketCount;
+    private IdTable ids;
+    // index of the bucket to expire next, new ids go to the bucket just before it
+    private int head = 0;
+    private final Map<String, Integer> topicSlots = new HashMap<>();
+    private final List<String> slotPartitions = new ArrayList<>();
+    private final List<String> slotTopics = new ArrayList<>();
+    private final List<Integer> slotPartitionIndexes = new ArrayList<>();
+    // number of ticks after which ids of the slot expire, zero if ack timeout is disabled for the topic
+    private final List<Integer> slotTicks = new ArrayList<>();
+    private final ToLongFunction<String> ackTimeoutMs;
+    private volatile Timeout tickTimeout;
+
+    public CompactUnAckedTopicMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase,
+                                             ConsumerConfigurationData<?> conf) {
+        this(client, consumerBase, conf.getTickDurationMillis() > 0
+                        ? Math.min(conf.getTickDurationMillis(), conf.getAckTimeoutMillis()) : conf.getAckTimeoutMillis(),
+                conf.getAckTimeoutMillis(), topicPartitionName -> conf.getAckTimeoutMillis());
+    }
+
+    /**
+     * @param tickDurationMs tick duration of the consumer, ids are redelivered up to a tick after their ack timeout
+     * @param maxAckTimeoutMs longest ack timeout of any topic partition
+     * @param ackTimeoutMs ack timeout of a topic partition, zero to not track its messages
+     */
+    public CompactUnAckedTopicMessageTracker(PulsarClientImpl client, ConsumerBase<?> consumerBase, long tickDurationMs,
+                                             long maxAckTimeoutMs, ToLongFunction<String> ackTimeoutMs) {
+        super();
+        this.client = client;
+        this.consumerBase = consumerBase;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.tickMs = tickDurationMs > 0 ? tickDurationMs : DEFAULT_TICK_DURATION_MS;
+        int blankBuckets = (int) Math.ceil((double) maxAckTimeoutMs / tickMs);
+        this.bucketCount = blankBuckets + 1;
+        this.ids = new IdTable(bucketCount);
+        this.tickTimeout = client.timer().newTimeout(tickTask, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    private final TimerTask tickTask = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) throws Exception {
+            if (timeout.isCancelled()) {
+                return;
+            }
+            Set<MessageId> messageIds = new HashSet<>();
+            synchronized (CompactUnAckedTopicMessageTracker.this) {
+                int expired = ids.removeBucket(head, (ledgerId, entryId, meta) -> {
+                    MessageId messageId = toMessageId(ledgerId, entryId, meta);
+                    addChunkedMessageIdsAndRemoveFromSequenceMap(messageId, messageIds, consumerBase);
+                    messageIds.add(messageId);
+                });
+                if (expired > 0) {
+                    log.info("[{}] {} messages will be re-delivered", consumerBase, expired);
+                }
+                head = (head + 1) % bucketCount;
+            }
+            if (!messageIds.isEmpty()) {
+                consumerBase.onAckTimeoutSend(messageIds);
+                consumerBase.redeliverUnacknowledgedMessages(messageIds);
+            }
+            tickTimeout = client.timer().newTimeout(this, tickMs, TimeUnit.MILLISECONDS);
+        }
+    };
+
+    @Override
+    public synchronized void clear() {
+        ids = new IdTable(bucketCount);
+    }
+
+    @Override
+    public boolean add(MessageId messageId) {
+        return add(messageId, 0);
+    }
+
+    @Override
+    public synchronized boolean add(MessageId messageId, int redeliveryCount) {
+        if (!(messageId instanceof TopicMessageIdImpl)) {
+            return false;
+        }
+        TopicMessageIdImpl topicMessageId = (TopicMessageIdImpl) messageId;
+        if (!(topicMessageId.getInnerMessageId() instanceof MessageIdImpl)) {
+            return false;
+        }
+        MessageIdImpl id = (MessageIdImpl) topicMessageId.getInnerMessageId();
+        int slot = slotOf(topicMessageId, id);
+        int ticks = slotTicks.get(slot);
+        if (ticks == 0) {
+            return false;
+        }
+        return ids.add(id.getLedgerId(), id.getEntryId(), toMeta(slot, id), (head + ticks - 1) % bucketCount);
+    }
+
+    @Override
+    synchronized boolean isEmpty() {
+        return ids.size() == 0;
+    }
+
+    @Override
+    public synchronized boolean remove(MessageId messageId) {
+        if (!(messageId instanceof TopicMessageIdImpl)) {
+            return false;
+        }
+        TopicMessageIdImpl topicMessageId = (TopicMessageIdImpl) messageId;
+        Integer slot = topicSlots.get(topicMessageId.getTopicPartitionName());
+        if (slot == null || !(topicMessageId.getInnerMessageId() instanceof MessageIdImpl)) {
+            return false;
+        }
+        MessageIdImpl id = (MessageIdImpl) topicMessageId.getInnerMessageId();
+        return ids.remove(id.getLedgerId(), id.getEntryId(), toMeta(slot, id));
+    }
+
+    @Override
+    synchronized long size() {
+        return ids.size();
+    }
+
+    @Override
+    public synchronized int removeMessagesTill(MessageId messageId) {
+        if (!(messageId instanceof TopicMessageIdImpl)) {
+            return 0;
+        }
+        TopicMessageIdImpl topicMessageId = (TopicMessageIdImpl) messageId;
+        Integer slot = topicSlots.get(topicMessageId.getTopicPartitionName());
+        if (slot == null || !(topicMessageId.getInnerMessageId() instanceof MessageIdImpl)) {
+            return 0;
+        }
+        MessageIdImpl id = (MessageIdImpl) topicMessageId.getInnerMessageId();
+        return ids.removeIf((ledgerId, entryId, meta) -> slotOf(meta) == slot
+                && (ledgerId < id.getLedgerId() || (ledgerId == id.getLedgerId() && entryId <= id.getEntryId())));
+    }
+
+    public synchronized int removeTopicMessages(String topicName) {
+        Set<Integer> slots = new HashSet<>();
+        for (int slot = 0; slot < slotPartitions.size(); slot++) {
+            if (slotPartitions.get(slot).contains(topicName)) {
+                slots.add(slot);
+            }
+        }
+        if (slots.isEmpty()) {
+            return 0;
+        }
+        return ids.removeIf((ledgerId, entryId, meta) -> slots.contains(slotOf(meta)));
+    }
+
+    @Override
+    public void close() {
+        if (tickTimeout != null && !tickTimeout.isCancelled()) {
+            tickTimeout.cancel();
+            tickTimeout = null;
+        }
+        clear();
+    }
+
+    // slots are never reused, a resubscribed topic partition keeps its slot
+    private int slotOf(TopicMessageIdImpl topicMessageId, MessageIdImpl id) {
+        Integer slot = topicSlots.get(topicMessageId.getTopicPartitionName());
+        if (slot == null) {
+            if (slotPartitions.size() >= MAX_SLOTS) {
+                throw new IllegalStateException("Exceeded max topic partitions tracked: " + MAX_SLOTS);
+            }
+            slot = slotPartitions.size();
+            topicSlots.put(topicMessageId.getTopicPartitionName(), slot);
+            slotPartitions.add(topicMessageId.getTopicPartitionName());
+            slotTopics.add(topicMessageId.getTopicName());
+            slotPartitionIndexes.add(id.getPartitionIndex());
+            long timeoutMs = ackTimeoutMs.applyAsLong(topicMessageId.getTopicPartitionName());
+            slotTicks.add(timeoutMs <= 0 ? 0 : (int) Math.min(bucketCount, Math.ceil((double) timeoutMs / tickMs) + 1));
+        }
+        return slot;
+    }
+
+    private static int slotOf(long meta) {
+        return (int) (meta >>> (2 * BATCH_BITS));
+    }
+
+    // batch index is stored with an offset of one, zero stands for a message which is not batched
+    private static long toMeta(int slot, MessageIdImpl id) {
+        long batchIndex = 0;
+        long batchSize = 0;
+        if (id instanceof BatchMessageIdImpl) {
+            BatchMessageIdImpl batchId = (BatchMessageIdImpl) id;
+            batchIndex = (batchId.getBatchIndex() + 1) & BATCH_MASK;
+            batchSize = batchId.getBatchSize() & BATCH_MASK;
+        }
+        return ((long) slot << (2 * BATCH_BITS)) | (batchSize << BATCH_BITS) | batchIndex;
+    }
+
+    private MessageId toMessageId(long ledgerId, long entryId, long meta) {
+        int slot = slotOf(meta);
+        int partitionIndex = slotPartitionIndexes.get(slot);
+        int batchIndex = (int) (meta & BATCH_MASK) - 1;
+        int batchSize = (int) ((meta >>> BATCH_BITS) & BATCH_MASK);
+        MessageIdImpl inner = batchIndex < 0
+                ? new MessageIdImpl(ledgerId, entryId, partitionIndex)
+                : new BatchMessageIdImpl(ledgerId, entryId, partitionIndex, batchIndex, batchSize, BatchMessageAckerDisabled.INSTANCE);
+        return new TopicMessageIdImpl(slotPartitions.get(slot), slotTopics.get(slot), inner);
+    }
+
+    private interface IdPredicate {
+        boolean test(long ledgerId, long entryId, long meta);
+    }
+
+    private interface IdConsumer {
+        void accept(long ledgerId, long entryId, long meta);
+    }
+
+    /**
+     * Open addressing table of packed message ids with linear probing, in which every id is also linked into the
+     * doubly linked list of its bucket. Ledger ids are never negative, which leaves negative values to mark empty and
+     * removed slots. A negative previous link marks the first id of a bucket and holds the bucket instead.
+     */
+    private static class IdTable {
+        private static final long EMPTY = -1;
+        private static final long REMOVED = -2;
+        private static final int NONE = -1;
+        private static final int INITIAL_CAPACITY = 16;
+        private final int[] bucketHeads;
+        private long[] ledgerIds;
+        private long[] entryIds;
+        private long[] metas;
+        private int[] nexts;
+        private int[] prevs;
+        private int size = 0;
+        private int used = 0;
+
+        private IdTable(int bucketCount) {
+            bucketHeads = new int[bucketCount];
+            Arrays.fill(bucketHeads, NONE);
+            allocate(INITIAL_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            ledgerIds = new long[capacity];
+            entryIds = new long[capacity];
+            metas = new long[capacity];
+            nexts = new int[capacity];
+            prevs = new int[capacity];
+            Arrays.fill(ledgerIds, EMPTY);
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean add(long ledgerId, long entryId, long meta, int bucket) {
+            if (find(ledgerId, entryId, meta) >= 0) {
+                return false;
+            }
+            if ((used + 1) * 4 > ledgerIds.length * 3) {
+                rehash(size * 2 >= ledgerIds.length / 2 ? ledgerIds.length * 2 : ledgerIds.length);
+            }
+            insert(ledgerId, entryId, meta, bucket);
+            return true;
+        }
+
+        boolean remove(long ledgerId, long entryId, long meta) {
+            if (size == 0) {
+                return false;
+            }
+            int index = find(ledgerId, entryId, meta);
+            if (index < 0) {
+                return false;
+            }
+            unlink(index);
+            ledgerIds[index] = REMOVED;
+            size--;
+            return true;
+        }
+
+        /**
+         * Removes all ids of the bucket, passing each of them to the consumer, and returns their count
+         */
+        int removeBucket(int bucket, IdConsumer consumer) {
+            int removed = 0;
+            for (int index = bucketHeads[bucket]; index != NONE; index = nexts[index]) {
+                consumer.accept(ledgerIds[index], entryIds[index], metas[index]);
+                ledgerIds[index] = REMOVED;
+                removed++;
+            }
+            bucketHeads[bucket] = NONE;
+            size -= removed;
+            return removed;
+        }
+
+        int removeIf(IdPredicate predicate) {
+            int removed = 0;
+            for (int i = 0; i < ledgerIds.length; i++) {
+                if (ledgerIds[i] >= 0 && predicate.test(ledgerIds[i], entryIds[i], metas[i])) {
+                    unlink(i);
+                    ledgerIds[i] = REMOVED;
+                    size--;
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        private void insert(long ledgerId, long entryId, long meta, int bucket) {
+            int mask = ledgerIds.length - 1;
+            int index = hash(ledgerId, entryId, meta) & mask;
+            while (ledgerIds[index] >= 0) {
+                index = (index + 1) & mask;
+            }
+            if (ledgerIds[index] == EMPTY) {
+                used++;
+            }
+            ledgerIds[index] = ledgerId;
+            entryIds[index] = entryId;
+            metas[index] = meta;
+            int first = bucketHeads[bucket];
+            nexts[index] = first;
+            prevs[index] = -bucket - 1;
+            if (first != NONE) {
+                prevs[first] = index;
+            }
+            bucketHeads[bucket] = index;
+            size++;
+        }
+
+        private void unlink(int index) {
+            int prev = prevs[index];
+            int next = nexts[index];
+            if (prev < 0) {
+                bucketHeads[-prev - 1] = next;
+            } else {
+                nexts[prev] = next;
+            }
+            if (next != NONE) {
+                prevs[next] = prev;
+            }
+        }
+
+        private int find(long ledgerId, long entryId, long meta) {
+            int mask = ledgerIds.length - 1;
+            int index = hash(ledgerId, entryId, meta) & mask;
+            while (ledgerIds[index] != EMPTY) {
+                if (ledgerIds[index] == ledgerId && entryIds[index] == entryId && metas[index] == meta) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        // walks the buckets rather than the slots, so every id is relinked into the bucket it was in
+        private void rehash(int capacity) {
+            long[] oldLedgerIds = ledgerIds;
+            long[] oldEntryIds = entryIds;
+            long[] oldMetas = metas;
+            int[] oldNexts = nexts;
+            int[] oldHeads = bucketHeads.clone();
+            allocate(capacity);
+            Arrays.fill(bucketHeads, NONE);
+            size = 0;
+            used = 0;
+            for (int bucket = 0; bucket < oldHeads.length; bucket++) {
+                for (int i = oldHeads[bucket]; i != NONE; i = oldNexts[i]) {
+                    insert(oldLedgerIds[i], oldEntryIds[i], oldMetas[i], bucket);
+                }
+            }
+        }
+
+        private static int hash(long ledgerId, long entryId, long meta) {
+            long h = ledgerId * 0x9E3779B97F4A7C15L;
+            h = (h ^ entryId) * 0xBF58476D1CE4E5B9L;
+            h = (h ^ meta) * 0x94D049BB133111EBL;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Message;
+
+/**
+ * Topic message stamped with the time it was queued inside the weighted consumer, either in the shared queue or in
+ * the sub-queue of its message class. Only created when dwell time stats are enabled. The stamp is published to the
+ * receiving thread by the queue itself.
+ */
+class EnqueueTimedTopicMessage<T> extends TopicMessageImpl<T> {
+    private long enqueueTimeNanos;
+
+    EnqueueTimedTopicMessage(String topicPartitionName, String topicName, Message<T> msg,
+                             ConsumerImpl<T> receivedByConsumer) {
+        super(topicPartitionName, topicName, msg, receivedByConsumer);
+    }
+
+    void stampEnqueueTime() {
+        if (enqueueTimeNanos == 0) {
+            enqueueTimeNanos = System.nanoTime();
+        }
+    }
+
+    long getEnqueueTimeNanos() {
+        return enqueueTimeNanos;
+    }
+}
@@ -936,11 +936,9 @@ class ReferenceMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                             partitionIndex -> {
                                 String partitionName = TopicName.get(topicName).getPartition(partitionIndex).toString();
                                 CompletableFuture<Consumer<T>> subFuture = new CompletableFuture<>();
-                                ConsumerImpl<T> newConsumer = ConsumerImpl.newConsumerImpl(client, partitionName,
-                                        configurationData, client.externalExecutorProvider(),
-                                        partitionIndex, true, subFuture,
-                                        startMessageId, schema, interceptors,
-                                        createIfDoesNotExist, startMessageRollbackDurationInSec);
+                                ConsumerImpl<T> newConsumer = newSubConsumer(partitionName, configurationData,
+                                        partitionIndex, subFuture, startMessageId, schema, createIfDoesNotExist,
+                                        startMessageRollbackDurationInSec);
                                 consumers.putIfAbsent(newConsumer.getTopic(), newConsumer);
                                 return subFuture;
                             })
@@ -957,10 +955,8 @@ class ReferenceMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                     subscribeResult.completeExceptionally(new PulsarClientException(errorMessage));
                     return existingValue;
                 } else {
-                    ConsumerImpl<T> newConsumer = ConsumerImpl.newConsumerImpl(client, topicName, internalConfig,
-                            client.externalExecutorProvider(), -1,
-                            true, subFuture, null, schema, interceptors,
-                            createIfDoesNotExist);
+                    ConsumerImpl<T> newConsumer = newSubConsumer(topicName, internalConfig, -1, subFuture, null,
+                            schema, createIfDoesNotExist, 0);
 
                     synchronized (pauseMutex) {
                         if (paused) {
@@ -1000,6 +996,17 @@ class ReferenceMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                 });
     }
 
+    // Benchmarks override this to plug in-memory sub-consumers, so that the overhead of weighting can be measured
+    // against this consumer without a broker
+    @VisibleForTesting
+    ConsumerImpl<T> newSubConsumer(String topicName, ConsumerConfigurationData<T> configurationData, int partitionIndex,
+                                   CompletableFuture<Consumer<T>> subFuture, MessageId startMessageId, Schema<T> schema,
+                                   boolean createIfDoesNotExist, long startMessageRollbackDurationInSec) {
+        return ConsumerImpl.newConsumerImpl(client, topicName, configurationData, client.externalExecutorProvider(),
+                partitionIndex, true, subFuture, startMessageId, schema, interceptors, createIfDoesNotExist,
+                startMessageRollbackDurationInSec);
+    }
+
     // handling failure during subscribe new topic, unsubscribe success created partitions
     private void handleSubscribeOneTopicError(String topicName, Throwable error, CompletableFuture<Void> subscribeFuture) {
         log.warn("[{}] Failed to subscribe for topic [{}] in topics consumer {}", topic, topicName, error.getMessage());
@@ -1220,11 +1227,8 @@ class ReferenceMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                             int partitionIndex = TopicName.getPartitionIndex(partitionName);
                             CompletableFuture<Consumer<T>> subFuture = new CompletableFuture<>();
                             ConsumerConfigurationData<T> configurationData = getInternalConsumerConfig();
-                            ConsumerImpl<T> newConsumer = ConsumerImpl.newConsumerImpl(
-                                    client, partitionName, configurationData,
-                                    client.externalExecutorProvider(),
-                                    partitionIndex, true, subFuture, null, schema, interceptors,
-                                    true /* createTopicIfDoesNotExist */);
+                            ConsumerImpl<T> newConsumer = newSubConsumer(partitionName, configurationData,
+                                    partitionIndex, subFuture, null, schema, true /* createTopicIfDoesNotExist */, 0);
                             synchronized (pauseMutex) {
                                 if (paused) {
                                     newConsumer.pause();
@@ -17,7 +17,10 @@ package org.apache.pulsar.client.impl;
 
 import org.apache.pulsar.client.api.*;
 import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
+import org.apache.pulsar.client.impl.weight.MessageClassSpec;
+import org.apache.pulsar.client.impl.weight.TopicRedeliveryPolicy;
 import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerEventListener;
 import org.apache.pulsar.client.util.RetryMessageUtil;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.util.FutureUtil;
@@ -26,6 +29,7 @@ import org.apache.pulsar.shade.org.apache.commons.lang3.StringUtils;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.pulsar.shade.com.google.common.base.Preconditions.checkArgument;
 
@@ -82,11 +86,35 @@ public class WeightedConsumerBuilder<T> extends ConsumerBuilderImpl<T> {
         return this;
     }
 
+    public WeightedConsumerBuilder<T> retryTopicDecay(int buckets) {
+        checkArgument(buckets >= 0 && buckets <= 16, "retry topic decay buckets should be in the range [0,16]");
+        weightConf.setRetryTopicDecayBuckets(buckets);
+        return this;
+    }
+
     public WeightedConsumerBuilder<T> throttleReceiveQueue(boolean shouldThrotle) {
         weightConf.setThrottleReceiveQueue(shouldThrotle);
         return this;
     }
 
+    public WeightedConsumerBuilder<T> autoThrottleReceiveQueue(boolean autoThrottle) {
+        weightConf.setAutoThrottleReceiveQueue(autoThrottle);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> autoThrottleWindow(int window, TimeUnit unit) {
+        checkArgument(unit.toSeconds(window) >= 1, "auto throttle window should be at least 1 second");
+        weightConf.setAutoThrottleWindowSeconds((int) unit.toSeconds(window));
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> autoThrottleRatios(double enterRatio, double exitRatio) {
+        checkArgument(exitRatio > 0 && exitRatio < enterRatio && enterRatio <= 1,
+                "auto throttle ratios should satisfy 0 < exit ratio < enter ratio <= 1");
+        weightConf.setAutoThrottleRatios(enterRatio, exitRatio);
+        return this;
+    }
+
     public WeightedConsumerBuilder<T> queueResumeThreshold(int resumeThreshold) {
         weightConf.setQueueResumeThreshold(resumeThreshold);
         return this;
@@ -110,6 +138,161 @@ public class WeightedConsumerBuilder<T> extends ConsumerBuilderImpl<T> {
         }
         return this;
     }
+
+    public WeightedConsumerBuilder<T> cumulativeAckWatermark(boolean enabled) {
+        weightConf.setCumulativeAckWatermark(enabled);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> compactUnAckedTracker(boolean enabled) {
+        weightConf.setCompactUnAckedTracker(enabled);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> weightedStats(boolean enabled) {
+        weightConf.setWeightedStats(enabled);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> dwellTimeStats(boolean enabled) {
+        weightConf.setDwellTimeStats(enabled);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> endToEndLatencyStats(boolean enabled) {
+        weightConf.setEndToEndLatencyStats(enabled);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> eventListener(WeightedConsumerEventListener listener) {
+        weightConf.setEventListener(listener);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> eventInterval(long interval, TimeUnit unit) {
+        checkArgument(unit.toMillis(interval) >= 1, "event interval should be at least 1 ms");
+        weightConf.setEventIntervalMs(unit.toMillis(interval));
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> saturationDuration(long duration, TimeUnit unit) {
+        checkArgument(duration >= 0, "saturation duration should be non-negative");
+        weightConf.setSaturationMs(unit.toMillis(duration));
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> shareDriftTolerance(double tolerance) {
+        checkArgument(tolerance > 0, "share drift tolerance should be positive");
+        weightConf.setShareDriftTolerance(tolerance);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> ackCoalescing(long time, TimeUnit unit, int maxSize) {
+        checkArgument(time >= 0, "ack coalesce time should be non-negative");
+        checkArgument(maxSize >= 1, "ack coalesce max size should be at least 1");
+        weightConf.setAckCoalesceTimeMs(unit.toMillis(time));
+        weightConf.setAckCoalesceMaxSize(maxSize);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> maxMessagesPerSecond(long maxMessagesPerSecond) {
+        checkArgument(maxMessagesPerSecond >= 0, "max messages per second should be non-negative");
+        weightConf.setMaxMessagesPerSecond(maxMessagesPerSecond);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> topicRateLimit(String topic, long maxMessagesPerSecond, long maxBytesPerSecond) {
+        checkArgument(maxMessagesPerSecond > 0 || maxBytesPerSecond > 0,
+                "either of max messages or bytes per second is required in rate limit");
+        weightConf.setTopicRateLimit(topic, maxMessagesPerSecond, maxBytesPerSecond);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> topicRedeliveryPolicy(String topic, long ackTimeout, long negativeAckDelay,
+                                                            long negativeAckMaxDelay, TimeUnit unit) {
+        checkArgument(ackTimeout == 0 || unit.toMillis(ackTimeout) >= TopicRedeliveryPolicy.MIN_ACK_TIMEOUT_MS,
+                "ack timeout should be zero or at least %s ms", TopicRedeliveryPolicy.MIN_ACK_TIMEOUT_MS);
+        checkArgument(negativeAckDelay >= 0, "negative ack delay should be non-negative");
+        weightConf.setTopicRedeliveryPolicy(topic, unit.toMillis(ackTimeout), unit.toMillis(negativeAckDelay),
+                unit.toMillis(negativeAckMaxDelay));
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> weightScaledRedelivery(boolean enabled) {
+        weightConf.setWeightScaledRedelivery(enabled);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> weightScaledRedeliveryMaxFactor(int maxFactor) {
+        checkArgument(maxFactor >= 1, "weight scaled redelivery max factor should be at least 1");
+        weightConf.setWeightScaledRedeliveryMaxFactor(maxFactor);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> localReceiveQueues(int batchSize) {
+        checkArgument(batchSize >= 0, "local receive batch size should be non-negative");
+        weightConf.setLocalReceiveBatchSize(batchSize);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> messageClasses(String topic, MessageClassSpec messageClasses) {
+        checkArgument(messageClasses != null, "message classes required");
+        messageClasses.validate(weightConf.getMaxWeightAllowed());
+        weightConf.setTopicMessageClasses(topic, messageClasses);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> catchUpCheckInterval(int interval, TimeUnit unit) {
+        checkArgument(interval >= 0, "catch up check interval should be non-negative");
+        checkArgument(interval == 0 || unit.toSeconds(interval) >= 1,
+                "catch up check interval should be zero or at least 1 second");
+        weightConf.setCatchUpCheckIntervalSeconds((int) unit.toSeconds(interval));
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> catchUpLagTime(long lagTime, TimeUnit unit) {
+        weightConf.setCatchUpLagTimeMs(unit.toMillis(lagTime));
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> catchUpLagEntries(long lagEntries) {
+        weightConf.setCatchUpLagEntries(lagEntries);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> catchUpBoostFactor(int boostFactor) {
+        weightConf.setCatchUpBoostFactor(boostFactor);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> catchUpMaxThreshold(int maxThreshold) {
+        weightConf.setCatchUpMaxThreshold(maxThreshold);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> topicGroup(String topic, String group) {
+        weightConf.addTopicGroup(topic, group);
+        return this;
+    }
+
+    public WeightedConsumerBuilder<T> groupWeight(String group, int weight) {
+        checkArgument(weight >= 1 && weight <= weightConf.getMaxWeightAllowed(),
+                "group weights should be in the range [1,maxWeightAllowed(%s)]", weightConf.getMaxWeightAllowed());
+        weightConf.setGroupWeight(group, weight);
+        return this;
+    }
+
+    //Adds the topics with their weights within the group, and the weight of the group itself
+    public WeightedConsumerBuilder<T> group(String group, int groupWeight, Map<String, Integer> topicWeights) {
+        checkArgument(topicWeights != null && topicWeights.size() > 0, "non-empty topic-weight map required");
+        groupWeight(group, groupWeight);
+        for (Map.Entry<String, Integer> entry : topicWeights.entrySet()) {
+            topic(entry.getKey(), entry.getValue());
+            topicGroup(entry.getKey(), group);
+        }
+        return this;
+    }
+
     private String getSubscriptionName(ConsumerConfigurationData conf){
         String subscriptionName=conf.getSubscriptionName();
         subscriptionName.replace("/", "__");
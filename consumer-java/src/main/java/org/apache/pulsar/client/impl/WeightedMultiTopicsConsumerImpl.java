@@ -18,10 +18,27 @@ import org.apache.pulsar.client.api.*;
 import org.apache.pulsar.client.api.PulsarClientException.NotSupportedException;
 import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
 import org.apache.pulsar.client.impl.transaction.TransactionImpl;
+import org.apache.pulsar.client.impl.weight.AckWatermarkTracker;
+import org.apache.pulsar.client.impl.weight.CapacityFeedback;
+import org.apache.pulsar.client.impl.weight.LocalReceiveQueues;
+import org.apache.pulsar.client.impl.weight.MessageClassQueues;
+import org.apache.pulsar.client.impl.weight.MessageClassifier;
+import org.apache.pulsar.client.impl.weight.ReceiveQueueModeDetector;
+import org.apache.pulsar.client.impl.weight.RetryMessageClassifier;
+import org.apache.pulsar.client.impl.weight.TopicLagTracker;
 import org.apache.pulsar.client.impl.weight.TopicMessageCountTracker;
+import org.apache.pulsar.client.impl.weight.TopicRateLimiter;
+import org.apache.pulsar.client.impl.weight.TopicRedeliveryPolicies;
+import org.apache.pulsar.client.impl.weight.TopicRedeliveryPolicy;
 import org.apache.pulsar.client.impl.weight.TopicThresholdDistribution;
 import org.apache.pulsar.client.impl.weight.TopicThresholdDistributionImpl;
 import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerEventDispatcher;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerEventListener;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerEvents;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerStats;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerStatsRecorder;
+import org.apache.pulsar.client.impl.weight.WeightedThroughputLimiter;
 import org.apache.pulsar.client.util.ConsumerName;
 import org.apache.pulsar.client.util.ExecutorProvider;
 import org.apache.pulsar.common.api.proto.CommandAck.AckType;
@@ -40,6 +57,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -48,6 +66,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -55,9 +74,10 @@ import static org.apache.pulsar.shade.com.google.common.base.Preconditions.check
 import static org.apache.pulsar.shade.com.google.common.base.Preconditions.checkState;
 import static org.apache.pulsar.shade.org.apache.commons.lang3.StringUtils.isBlank;
 
-public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
+public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> implements CapacityFeedback {
 
     public static final String DUMMY_TOPIC_NAME_PREFIX = "WeightedMultiConsumerImpl-";
+    private static final long RECEIVE_QUEUE_MODE_SAMPLE_INTERVAL_MS = 100;
     private static final Logger log = LoggerFactory.getLogger(WeightedMultiTopicsConsumerImpl.class);
     // Map <topic, numPartitions>, store partition number for each topic
     protected final ConcurrentHashMap<String, Integer> partitionedTopics;
@@ -66,16 +86,56 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
     // Queue of partition consumers on which we have stopped calling receiveAsync() because the
     // topic level thresholds have exceeded
     private final ConcurrentLinkedQueue<ConsumerImpl<T>> pausedConsumers;
+    // Topics paused by the application, their consumers are parked in pausedConsumers until the topic is resumed
+    private final Set<String> pausedTopics = ConcurrentHashMap.newKeySet();
     // Threshold for the shared queue. When the size of the shared queue goes below the threshold, we are going to
     // resume receiving from the paused consumer partitions
     private final int sharedQueueResumeThreshold;
     private final boolean throttleReceiverQueue;
     private final TopicThresholdDistribution topicThresholdDistribution;
+    // Tracks lag of partitions to boost thresholds of lagging topics, null if catch up boost is disabled
+    private final TopicLagTracker topicLagTracker;
+    private final int catchUpCheckIntervalSeconds;
+    // Enforces absolute rate limits of topics, null if no topic is rate limited
+    private final TopicRateLimiter topicRateLimiter;
+    // Divides the consumer wide throughput cap among active topics by weight, null if there is no cap
+    private final WeightedThroughputLimiter throughputLimiter;
+    // Switches receiver queues between throttled and unthrottled modes, null if auto throttle is disabled
+    private final ReceiveQueueModeDetector receiveQueueModeDetector;
+    // Map <topic+partition, permits granted over (or revoked from) the receiver queue size of the consumer>
+    private final ConcurrentHashMap<String, PermitAdjustment> permitAdjustments = new ConcurrentHashMap<>();
+    // Map <topic, downstream capacity reported by the application>, topics at full capacity are absent
+    private final ConcurrentHashMap<String, Double> topicCapacities = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, AtomicInteger> messageCounters = new ConcurrentHashMap<>();
+    // Map <group, count of messages in shared queue>, only populated for topics which belong to a weight group
+    private final ConcurrentHashMap<String, AtomicInteger> groupMessageCounters = new ConcurrentHashMap<>();
     private final Object pauseMutex = new Object();
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final ConsumerStatsRecorder stats;
+    // Records per topic pauses and consumption, null if weighted stats are disabled
+    private final WeightedConsumerStatsRecorder weightedStats;
+    private final WeightedConsumerStats.Interval weightedStatsInterval = new WeightedConsumerStats.Interval();
+    // Messages are stamped as they are queued to record how long they wait in the consumer
+    private final boolean dwellTimeStats;
+    // Publish to receive and publish to ack latency are recorded per topic
+    private final boolean endToEndLatencyStats;
+    // Notifies the event listener registered on subscribe, null if there is none
+    private volatile WeightedConsumerEventDispatcher eventDispatcher;
+    private long eventIntervalMs;
     private final UnAckedMessageTracker unAckedMessageTracker;
+    // Coalesces individual acks per partition, null if ack coalescing is disabled
+    private final AckCoalescer ackCoalescer;
+    private final long ackCoalesceTimeMs;
+    // Per thread queues of messages taken off the shared queue in batches, null if receive serves from the shared queue
+    private final LocalReceiveQueues<Message<T>> localReceiveQueues;
+    // Classifiers of the topics whose messages are split into weighted classes, keyed by partitioned topic name
+    private final Map<String, MessageClassifier> messageClassifiers = new HashMap<>();
+    // Sub-queues holding classified messages until their class is within its share of the shared queue
+    private final ConcurrentHashMap<String, MessageClassQueues<Message<T>>> messageClassQueues = new ConcurrentHashMap<>();
+    // Per topic ack timeouts and negative ack delays, null if the consumer wide settings apply to all topics
+    private final TopicRedeliveryPolicies redeliveryPolicies;
+    // Turns individual acks into cumulative acks of the contiguous completed prefix, null if disabled
+    private final AckWatermarkTracker ackWatermarkTracker;
     private final ConsumerConfigurationData<T> internalConfig;
     private final long startMessageRollbackDurationInSec;
     // sum of topicPartitions, simple topic has 1, partitioned topic equals to partition number.
@@ -85,6 +145,15 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
     private boolean paused = false;
     // timeout related to auto check and subscribe partition increasement
     private volatile Timeout partitionsAutoUpdateTimeout = null;
+    // timeout related to periodic lag checks of catch up boost
+    private volatile Timeout catchUpCheckTimeout = null;
+    CompletableFuture<Void> catchUpCheckFuture = null;
+    // timeout related to sampling of auto throttle
+    private volatile Timeout receiveQueueModeTimeout = null;
+    // timeout related to periodic flush of coalesced acks
+    private volatile Timeout ackCoalesceTimeout = null;
+    // timeout related to sampling for event listener notifications
+    private volatile Timeout eventSampleTimeout = null;
     private volatile BatchMessageIdImpl startMessageId = null;
 
     WeightedMultiTopicsConsumerImpl(PulsarClientImpl client, ConsumerConfigurationData<T> conf,
@@ -133,9 +202,38 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         this.topicThresholdDistribution = TopicThresholdDistributionImpl.loadFromConf(weightConf);
         this.sharedQueueResumeThreshold = Math.max(0, Math.min(topicThresholdDistribution.getMinValue(), weightConf.getQueueResumeThreshold()));
         this.throttleReceiverQueue = weightConf.isThrottleReceiveQueue();
-
-        if (conf.getAckTimeoutMillis() != 0) {
-            if (conf.getTickDurationMillis() > 0) {
+        this.catchUpCheckIntervalSeconds = weightConf.getCatchUpCheckIntervalSeconds();
+        this.topicLagTracker = catchUpCheckIntervalSeconds > 0 ? new TopicLagTracker(weightConf) : null;
+        this.topicRateLimiter = weightConf.getTopicRateLimits().isEmpty() ? null
+                : new TopicRateLimiter(weightConf.getTopicRateLimits(), nanoClock());
+        this.throughputLimiter = weightConf.getMaxMessagesPerSecond() > 0
+                ? new WeightedThroughputLimiter(weightConf.getMaxMessagesPerSecond(), topicThresholdDistribution, nanoClock())
+                : null;
+        this.receiveQueueModeDetector = weightConf.isAutoThrottleReceiveQueue()
+                ? new ReceiveQueueModeDetector(throttleReceiverQueue,
+                (int) (TimeUnit.SECONDS.toMillis(weightConf.getAutoThrottleWindowSeconds()) / RECEIVE_QUEUE_MODE_SAMPLE_INTERVAL_MS),
+                weightConf.getAutoThrottleEnterRatio(), weightConf.getAutoThrottleExitRatio())
+                : null;
+
+        if (weightConf.getRetryTopicDecayBuckets() > 0 && conf.isRetryEnable() && conf.getDeadLetterPolicy() != null
+                && !isBlank(conf.getDeadLetterPolicy().getRetryLetterTopic())) {
+            messageClassifiers.put(TopicName.get(conf.getDeadLetterPolicy().getRetryLetterTopic()).getPartitionedTopicName(),
+                    new RetryMessageClassifier(weightConf.getRetryTopicDecayBuckets()));
+        }
+        weightConf.getTopicMessageClasses().forEach((topic, classes) ->
+                messageClassifiers.put(TopicName.get(topic).getPartitionedTopicName(), classes.newClassifier()));
+        TopicRedeliveryPolicies redeliveryPolicies = new TopicRedeliveryPolicies(weightConf, topicThresholdDistribution,
+                conf.getAckTimeoutMillis(), conf.getNegativeAckRedeliveryDelayMicros());
+        this.redeliveryPolicies = redeliveryPolicies.isEnabled() ? redeliveryPolicies : null;
+        if (this.redeliveryPolicies != null && redeliveryPolicies.getMinAckTimeoutMs() > 0) {
+            // topics expire on ticks of their own, only the compact tracker supports that
+            this.unAckedMessageTracker = new CompactUnAckedTopicMessageTracker(client, this,
+                    conf.getTickDurationMillis(), redeliveryPolicies.getMaxAckTimeoutMs(),
+                    topicPartitionName -> redeliveryPolicies.getAckTimeoutMs(partitionTopic(topicPartitionName)));
+        } else if (conf.getAckTimeoutMillis() != 0) {
+            if (weightConf.isCompactUnAckedTracker()) {
+                this.unAckedMessageTracker = new CompactUnAckedTopicMessageTracker(client, this, conf);
+            } else if (conf.getTickDurationMillis() > 0) {
                 this.unAckedMessageTracker = new UnAckedTopicMessageTracker(client, this, conf);
             } else {
                 this.unAckedMessageTracker = new UnAckedTopicMessageTracker(client, this, conf);
@@ -143,9 +241,25 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         } else {
             this.unAckedMessageTracker = UnAckedMessageTracker.UNACKED_MESSAGE_TRACKER_DISABLED;
         }
+        this.ackWatermarkTracker = weightConf.isCumulativeAckWatermark() ? new AckWatermarkTracker() : null;
+        this.localReceiveQueues = weightConf.getLocalReceiveBatchSize() > 0
+                ? new LocalReceiveQueues<>(weightConf.getLocalReceiveBatchSize(),
+                        message -> partitionTopic(message.getTopicName()),
+                        partitionTopic -> topicThresholdDistribution.getWeight(partitionTopic))
+                : null;
+        this.ackCoalesceTimeMs = weightConf.getAckCoalesceTimeMs();
+        if (ackCoalesceTimeMs > 0 && conf.isAckReceiptEnabled()) {
+            log.warn("[{}] Ack coalescing is disabled, acks are to complete on receipt from the broker", topic);
+        }
+        // coalesced acks complete once buffered, which would defeat ack receipt
+        this.ackCoalescer = ackCoalesceTimeMs > 0 && !conf.isAckReceiptEnabled()
+                ? new AckCoalescer(weightConf.getAckCoalesceMaxSize(), consumers::get, unAckedMessageTracker) : null;
 
         this.internalConfig = getInternalConsumerConfig();
         this.stats = client.getConfiguration().getStatsIntervalSeconds() > 0 ? new ConsumerStatsRecorderImpl(this) : null;
+        this.weightedStats = weightConf.isWeightedStats() ? new WeightedConsumerStatsRecorder() : null;
+        this.dwellTimeStats = weightConf.isDwellTimeStats();
+        this.endToEndLatencyStats = weightConf.isEndToEndLatencyStats();
 
         // start track and auto subscribe partition increment
         if (conf.isAutoUpdatePartitions()) {
@@ -154,6 +268,21 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                     .newTimeout(partitionsAutoUpdateTimerTask, conf.getAutoUpdatePartitionsIntervalSeconds(), TimeUnit.SECONDS);
         }
 
+        if (topicLagTracker != null) {
+            catchUpCheckTimeout = client.timer()
+                    .newTimeout(catchUpCheckTimerTask, catchUpCheckIntervalSeconds, TimeUnit.SECONDS);
+        }
+
+        if (ackCoalescer != null) {
+            ackCoalesceTimeout = client.timer()
+                    .newTimeout(ackCoalesceTimerTask, ackCoalesceTimeMs, TimeUnit.MILLISECONDS);
+        }
+
+        if (receiveQueueModeDetector != null) {
+            receiveQueueModeTimeout = client.timer()
+                    .newTimeout(receiveQueueModeTimerTask, RECEIVE_QUEUE_MODE_SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+
         if (conf.getTopicNames().isEmpty()) {
             setState(State.Ready);
             subscribeFuture().complete(WeightedMultiTopicsConsumerImpl.this);
@@ -296,6 +425,12 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                     "Read compacted can only be used with exclusive or failover persistent subscriptions"));
         }
 
+        if (weightConf.isCumulativeAckWatermark() && conf.getSubscriptionType() != SubscriptionType.Exclusive
+                && conf.getSubscriptionType() != SubscriptionType.Failover) {
+            return FutureUtil.failedFuture(new PulsarClientException.InvalidConfigurationException(
+                    "Cumulative ack watermark can only be used with exclusive or failover subscriptions"));
+        }
+
         if (conf.getConsumerEventListener() != null && conf.getSubscriptionType() != SubscriptionType.Failover) {
             return FutureUtil.failedFuture(new PulsarClientException.InvalidConfigurationException(
                     "Active consumer listener is only supported for failover subscription"));
@@ -306,15 +441,29 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
             return FutureUtil.failedFuture(new IllegalArgumentException("Topics pattern not supported in weighted consumer"));
         } else {
             CompletableFuture<Consumer<T>> consumerSubscribedFuture = new CompletableFuture<>();
-            ConsumerBase<T> consumer = new WeightedMultiTopicsConsumerImpl<T>(clientImpl, conf,
+            WeightedMultiTopicsConsumerImpl<T> consumer = new WeightedMultiTopicsConsumerImpl<T>(clientImpl, conf,
                     clientImpl.externalExecutorProvider(), consumerSubscribedFuture, schema, interceptors,
                     true);
+            if (weightConf.getEventListener() != null) {
+                consumer.registerEventListener(weightConf.getEventListener(), weightConf.getEventIntervalMs(),
+                        weightConf.getSaturationMs(), weightConf.getShareDriftTolerance());
+            }
             internalClientConsumers.add(consumer);
 
             return consumerSubscribedFuture;
         }
     }
 
+    // Registered right after construction, as listeners cannot be carried in the consumer properties. Pauses which
+    // happen in the meantime are picked up by the first sample
+    private void registerEventListener(WeightedConsumerEventListener listener, long intervalMs, long saturationMs,
+                                       double shareDriftTolerance) {
+        this.eventIntervalMs = intervalMs;
+        this.eventDispatcher = new WeightedConsumerEventDispatcher(listener,
+                client.externalExecutorProvider().getExecutor(), saturationMs, shareDriftTolerance);
+        eventSampleTimeout = client.timer().newTimeout(eventSampleTimerTask, eventIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
     private static String partitionTopic(String topic) {
         TopicName topicName = TopicName.get(topic);
         if (topicName.isPartitioned()) {
@@ -336,12 +485,22 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                     log.debug("Increasing permits of consumer for topic {} by {}", consumer.getTopic(), permits);
                 }
                 consumer.increaseAvailablePermits(consumer.getConnectionHandler().cnx(), permits);
+                if (receiveQueueModeDetector != null || !topicCapacities.isEmpty()) {
+                    adjustPermits(consumer);
+                }
                 internalPinnedExecutor.execute(() -> receiveMessageFromConsumer(consumer));
             });
         }
     }
 
     private void receiveMessageFromConsumer(ConsumerImpl<T> consumer) {
+        if (!pausedTopics.isEmpty() && pausedTopics.contains(partitionTopic(consumer.getTopic()))) {
+            parkTopicPausedConsumer(consumer);
+            return;
+        }
+        if (weightedStats != null) {
+            weightedStats.onResumed(consumer.getTopic());
+        }
         consumer.receiveAsync().thenAccept(message -> {
             if (log.isDebugEnabled()) {
                 log.debug("[{}] [{}] Receive message from sub consumer:{}",
@@ -351,11 +510,26 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
             messageReceived(consumer, message);
 
             String partitionTopic = partitionTopic(consumer.getTopic());
-            int threshold = topicThresholdDistribution.getValue(partitionTopic);
+            int threshold = getThreshold(partitionTopic);
             int messagesInQueue = messageCounters.get(partitionTopic).get();
-            if (messagesInQueue > threshold) {
+            long rateLimitDelayMs = acquireRateLimit(partitionTopic, message.size());
+            if (rateLimitDelayMs > 0) {
+                // topic has exceeded its rate, the consumer is resumed once the rate allows while the shared queue
+                // keeps getting filled by the other topics
+                pausedConsumers.add(consumer);
+                recordPause(consumer);
+                WeightedConsumerEvents.topicPaused(consumer.getTopic(), "rate limit", messagesInQueue, threshold,
+                        incomingMessages.size());
+                scheduleRateLimitedResume(consumer, rateLimitDelayMs);
+                if (log.isDebugEnabled()) {
+                    log.debug("Consumer {} paused for {} ms by rate limit", consumer.getTopic(), rateLimitDelayMs);
+                }
+            } else if (messagesInQueue > threshold || isGroupThresholdBreached(partitionTopic)) {
                 // mark this consumer to be resumed later: if No more space left in shared queue
                 pausedConsumers.add(consumer);
+                recordPause(consumer);
+                WeightedConsumerEvents.topicPaused(consumer.getTopic(), "threshold", messagesInQueue, threshold,
+                        incomingMessages.size());
                 if (log.isDebugEnabled()) {
                     log.debug("Consumer {} paused with state {}/{} and total={}", topic, messagesInQueue, threshold, incomingMessages.size());
                 }
@@ -373,21 +547,35 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
 
     private void messageReceived(ConsumerImpl<T> consumer, Message<T> message) {
         checkArgument(message instanceof MessageImpl);
-        TopicMessageImpl<T> topicMessage = new TopicMessageImpl<>(consumer.getTopic(),
-                consumer.getTopicNameWithoutPartition(), message, consumer);
+        TopicMessageImpl<T> topicMessage = dwellTimeStats
+                ? new EnqueueTimedTopicMessage<>(consumer.getTopic(), consumer.getTopicNameWithoutPartition(), message, consumer)
+                : new TopicMessageImpl<>(consumer.getTopic(), consumer.getTopicNameWithoutPartition(), message, consumer);
+        if (topicLagTracker != null) {
+            topicLagTracker.onMessageReceived(consumer.getTopic(), message.getMessageId());
+        }
+        if (ackWatermarkTracker != null) {
+            ackWatermarkTracker.onReceived(consumer.getTopic(), consumer.getPartitionIndex(), message.getMessageId());
+        }
 
         if (log.isDebugEnabled()) {
             log.debug("[{}][{}] Received message from topics-consumer {}",
                     topic, subscription, message.getMessageId());
         }
 
-        // if asyncReceive is waiting : return message to callback without adding to incomingMessages queue
-        CompletableFuture<Message<T>> receivedFuture = nextPendingReceive();
-        if (receivedFuture != null) {
-            unAckedMessageTracker.add(topicMessage.getMessageId());
-            completePendingReceive(receivedFuture, topicMessage);
-        } else if (enqueueMessageAndCheckBatchReceive(topicMessage) && hasPendingBatchReceive()) {
-            notifyPendingBatchReceivedCallBack();
+        int messageClass = getMessageClass(topicMessage);
+        if (messageClass >= 0) {
+            // held in the sub-queue of its class until the class is within its share of the shared queue
+            stageClassifiedMessage(topicMessage, messageClass);
+        } else {
+            // if asyncReceive is waiting : return message to callback without adding to incomingMessages queue
+            CompletableFuture<Message<T>> receivedFuture = nextPendingReceive();
+            if (receivedFuture != null) {
+                unAckedMessageTracker.add(topicMessage.getMessageId());
+                recordConsumed(partitionTopic(consumer.getTopic()), topicMessage);
+                completePendingReceive(receivedFuture, topicMessage);
+            } else if (enqueueMessageAndCheckBatchReceive(topicMessage) && hasPendingBatchReceive()) {
+                notifyPendingBatchReceivedCallBack();
+            }
         }
 
         if (listener != null) {
@@ -395,6 +583,53 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         }
     }
 
+    private int getMessageClass(Message<?> message) {
+        if (messageClassifiers.isEmpty()) {
+            return -1;
+        }
+        MessageClassifier classifier = messageClassifiers.get(partitionTopic(message.getTopicName()));
+        return classifier == null ? -1 : classifier.classify(message);
+    }
+
+    // Staged messages count against the threshold of the topic just like the ones in the shared queue
+    private void stageClassifiedMessage(Message<T> message, int messageClass) {
+        String partitionTopic = partitionTopic(message.getTopicName());
+        addToMessageCounters(partitionTopic, 1);
+        stampEnqueueTime(message);
+        messageClassQueues.computeIfAbsent(partitionTopic, key -> new MessageClassQueues<>(messageClassifiers.get(key)))
+                .add(messageClass, message);
+        dispatchClassifiedMessages(partitionTopic);
+    }
+
+    private void dispatchClassifiedMessages(String partitionTopic) {
+        MessageClassQueues<Message<T>> queues = messageClassQueues.get(partitionTopic);
+        if (queues == null) {
+            return;
+        }
+        int threshold = getThreshold(partitionTopic);
+        Message<T> message;
+        while ((message = queues.poll(threshold)) != null) {
+            CompletableFuture<Message<T>> receivedFuture = nextPendingReceive();
+            if (receivedFuture != null) {
+                // handed over without passing through the shared queue
+                addToMessageCounters(partitionTopic, -1);
+                queues.onRemovedFromSharedQueue(queues.getClassifier().classify(message));
+                unAckedMessageTracker.add(message.getMessageId());
+                recordConsumed(partitionTopic, message);
+                completePendingReceive(receivedFuture, message);
+            } else if (super.enqueueMessageAndCheckBatchReceive(message) && hasPendingBatchReceive()) {
+                notifyPendingBatchReceivedCallBack();
+            }
+        }
+    }
+
+    private void clearMessageClassQueues(String partitionTopic) {
+        MessageClassQueues<Message<T>> queues = messageClassQueues.remove(partitionTopic);
+        if (queues != null) {
+            addToMessageCounters(partitionTopic, -queues.clear());
+        }
+    }
+
     @Override
     protected synchronized void messageProcessed(Message<?> msg) {
         unAckedMessageTracker.add(msg.getMessageId());
@@ -403,50 +638,317 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
 
     private void resumeReceivingFromPausedConsumersIfNeeded() {
         if (incomingMessages.size() <= sharedQueueResumeThreshold && !pausedConsumers.isEmpty()) {
+            // consumers of paused or rate limited topics are held back
+            List<ConsumerImpl<T>> heldConsumers = null;
+            int resumedConsumers = 0;
             while (true) {
                 ConsumerImpl<T> consumer = pausedConsumers.poll();
                 if (consumer == null) {
                     break;
                 }
 
+                if (isTopicPaused(consumer) || isRateLimited(consumer)) {
+                    if (heldConsumers == null) {
+                        heldConsumers = new ArrayList<>();
+                    }
+                    heldConsumers.add(consumer);
+                    continue;
+                }
+
                 internalPinnedExecutor.execute(() -> {
                     receiveMessageFromConsumer(consumer);
                 });
+                resumedConsumers++;
             }
+            if (resumedConsumers > 0) {
+                WeightedConsumerEvents.consumersResumed(resumedConsumers,
+                        heldConsumers == null ? 0 : heldConsumers.size(), incomingMessages.size());
+            }
+            if (heldConsumers != null) {
+                // re-checked only after being added back, as a resume in the meantime might have missed the consumer
+                pausedConsumers.addAll(heldConsumers);
+                heldConsumers.forEach(consumer -> {
+                    if (!isTopicPaused(consumer)) {
+                        long rateLimitDelayMs = getRateLimitDelayMs(partitionTopic(consumer.getTopic()));
+                        if (rateLimitDelayMs > 0) {
+                            scheduleRateLimitedResume(consumer, rateLimitDelayMs);
+                        } else if (pausedConsumers.remove(consumer)) {
+                            internalPinnedExecutor.execute(() -> receiveMessageFromConsumer(consumer));
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    // Topics are paused by the application either explicitly or by reporting zero capacity
+    private boolean isTopicPaused(ConsumerImpl<T> consumer) {
+        return isTopicPaused(partitionTopic(consumer.getTopic()), true);
+    }
+
+    private boolean isTopicPaused(String partitionTopic, boolean includeZeroCapacity) {
+        if (!pausedTopics.isEmpty() && pausedTopics.contains(partitionTopic)) {
+            return true;
+        }
+        return includeZeroCapacity && !topicCapacities.isEmpty() && topicCapacities.getOrDefault(partitionTopic, 1.0) <= 0;
+    }
+
+    private void parkTopicPausedConsumer(ConsumerImpl<T> consumer) {
+        pausedConsumers.add(consumer);
+        recordPause(consumer);
+        // the topic might have been resumed in the meantime, re-check to avoid stalling the consumer
+        if (!isTopicPaused(consumer) && pausedConsumers.remove(consumer)) {
+            internalPinnedExecutor.execute(() -> receiveMessageFromConsumer(consumer));
+        }
+    }
+
+    // The pause lasts until the consumer receives again, re-parking an already paused consumer is not a new pause
+    private void recordPause(ConsumerImpl<T> consumer) {
+        if (weightedStats != null) {
+            weightedStats.onPaused(consumer.getTopic(), partitionTopic(consumer.getTopic()));
+        }
+    }
+
+    // Messages handed to a pending receive without being queued are recorded with zero dwell time
+    private void recordConsumed(String partitionTopic, Message<?> message) {
+        WeightedConsumerEventDispatcher dispatcher = eventDispatcher;
+        if (dispatcher != null) {
+            dispatcher.onConsumed(partitionTopic);
+        }
+        if (weightedStats != null) {
+            weightedStats.onConsumed(partitionTopic);
+            if (message instanceof EnqueueTimedTopicMessage) {
+                long enqueueTimeNanos = ((EnqueueTimedTopicMessage<?>) message).getEnqueueTimeNanos();
+                weightedStats.onDequeued(partitionTopic, enqueueTimeNanos == 0 ? 0 : System.nanoTime() - enqueueTimeNanos);
+            }
+            if (endToEndLatencyStats) {
+                weightedStats.onReceived(partitionTopic, message.getPublishTime());
+            }
+        }
+    }
+
+    // Recorded once the ack succeeds. Acks by message id alone, including acknowledge(List<MessageId>), are not
+    // recorded, the publish time is only known from the message.
+    private void recordAcknowledged(Message<?> message) {
+        if (endToEndLatencyStats && message != null) {
+            weightedStats.onAcknowledged(partitionTopic(message.getTopicName()), message.getPublishTime());
+        }
+    }
+
+    private void stampEnqueueTime(Message<?> message) {
+        if (message instanceof EnqueueTimedTopicMessage) {
+            ((EnqueueTimedTopicMessage<?>) message).stampEnqueueTime();
+        }
+    }
+
+    private boolean isRateLimited(ConsumerImpl<T> consumer) {
+        return getRateLimitDelayMs(partitionTopic(consumer.getTopic())) > 0;
+    }
+
+    // Accounts the message against both the topic rate limit and the consumer wide cap
+    private long acquireRateLimit(String partitionTopic, int messageSize) {
+        long delayMs = topicRateLimiter == null ? 0 : topicRateLimiter.acquire(partitionTopic, messageSize);
+        if (throughputLimiter != null) {
+            delayMs = Math.max(delayMs, throughputLimiter.acquire(partitionTopic));
+        }
+        return delayMs;
+    }
+
+    private long getRateLimitDelayMs(String partitionTopic) {
+        long delayMs = topicRateLimiter == null ? 0 : topicRateLimiter.getDelayMs(partitionTopic);
+        if (throughputLimiter != null) {
+            delayMs = Math.max(delayMs, throughputLimiter.getDelayMs(partitionTopic));
+        }
+        return delayMs;
+    }
+
+    private void scheduleRateLimitedResume(ConsumerImpl<T> consumer, long delayMs) {
+        client.timer().newTimeout(timeout -> resumeRateLimitedConsumer(consumer), Math.max(1, delayMs), TimeUnit.MILLISECONDS);
+    }
+
+    // Resumes a consumer paused by the rate limit of its topic, unless the consumer has been resumed already or
+    // its threshold is still breached, in which case it is left to the shared queue to drain
+    private void resumeRateLimitedConsumer(ConsumerImpl<T> consumer) {
+        if (getState() == State.Closing || getState() == State.Closed || !pausedConsumers.remove(consumer)) {
+            return;
+        }
+        String partitionTopic = partitionTopic(consumer.getTopic());
+        long rateLimitDelayMs = getRateLimitDelayMs(partitionTopic);
+        if (isTopicPaused(consumer)) {
+            parkTopicPausedConsumer(consumer);
+        } else if (rateLimitDelayMs > 0) {
+            pausedConsumers.add(consumer);
+            scheduleRateLimitedResume(consumer, rateLimitDelayMs);
+        } else if (messageCounters.get(partitionTopic).get() > getThreshold(partitionTopic)
+                || isGroupThresholdBreached(partitionTopic)) {
+            pausedConsumers.add(consumer);
+            resumeReceivingFromPausedConsumersIfNeeded();
+        } else {
+            internalPinnedExecutor.execute(() -> receiveMessageFromConsumer(consumer));
+        }
+    }
+
+    private int getThreshold(String partitionTopic) {
+        int threshold = topicThresholdDistribution.getValue(partitionTopic);
+        if (topicLagTracker != null) {
+            threshold = topicLagTracker.getThreshold(partitionTopic, threshold);
+        }
+        if (!topicCapacities.isEmpty()) {
+            Double capacity = topicCapacities.get(partitionTopic);
+            if (capacity != null) {
+                threshold = Math.max(1, (int) Math.round(threshold * capacity));
+            }
+        }
+        return threshold;
+    }
+
+    // Thresholds are only computed for comparison while threshold changes are being recorded, null otherwise
+    private Map<String, Integer> getThresholdsIfRecorded(Collection<String> partitionTopics) {
+        if (!WeightedConsumerEvents.isThresholdChangeEnabled()) {
+            return null;
+        }
+        Map<String, Integer> thresholds = new HashMap<>();
+        partitionTopics.forEach(partitionTopic -> thresholds.put(partitionTopic, getThreshold(partitionTopic)));
+        return thresholds;
+    }
+
+    private void recordThresholdChanges(Map<String, Integer> previousThresholds, String reason) {
+        if (previousThresholds == null) {
+            return;
+        }
+        previousThresholds.forEach((partitionTopic, previousThreshold) -> {
+            int threshold = getThreshold(partitionTopic);
+            if (threshold != previousThreshold) {
+                WeightedConsumerEvents.thresholdChanged(partitionTopic, reason, previousThreshold, threshold);
+            }
+        });
+    }
+
+    // Resume paused consumers of the topics whose threshold has been raised, without waiting for the shared queue to drain
+    private void resumePausedConsumersBelowThreshold(Set<String> partitionTopics) {
+        for (ConsumerImpl<T> consumer : pausedConsumers) {
+            String partitionTopic = partitionTopic(consumer.getTopic());
+            if (partitionTopics.contains(partitionTopic)
+                    && messageCounters.get(partitionTopic).get() <= getThreshold(partitionTopic)
+                    && !isGroupThresholdBreached(partitionTopic)
+                    && !isTopicPaused(consumer)
+                    && !isRateLimited(consumer)
+                    && pausedConsumers.remove(consumer)) {
+                internalPinnedExecutor.execute(() -> receiveMessageFromConsumer(consumer));
+            }
+        }
+    }
+
+    // A grouped topic is paused once either its own share or the group threshold is breached, so that the group never
+    // holds more than its threshold, e.g. when a topic of the group is boosted or shares round up. Topics outside of
+    // weight groups are governed by their own threshold alone.
+    private boolean isGroupThresholdBreached(String partitionTopic) {
+        String group = topicThresholdDistribution.getGroup(partitionTopic);
+        if (group == null) {
+            return false;
+        }
+        return groupMessageCounters.get(group).get() > topicThresholdDistribution.getGroupValue(group);
+    }
+
+    private void addToMessageCounters(String partitionTopic, int delta) {
+        messageCounters.get(partitionTopic).addAndGet(delta);
+        String group = topicThresholdDistribution.getGroup(partitionTopic);
+        if (group != null) {
+            groupMessageCounters.get(group).addAndGet(delta);
         }
     }
 
     @Override
     protected boolean enqueueMessageAndCheckBatchReceive(Message<T> message) {
+        stampEnqueueTime(message);
         Boolean val=super.enqueueMessageAndCheckBatchReceive(message);
-        messageCounters.get(partitionTopic(message.getTopicName())).incrementAndGet();
+        addToMessageCounters(partitionTopic(message.getTopicName()), 1);
         return val;
     }
 
     @Override
     protected void decreaseIncomingMessageSize(Message<?> message) {
         super.decreaseIncomingMessageSize(message);
-        messageCounters.get(partitionTopic(message.getTopicName())).decrementAndGet();
+        String partitionTopic = partitionTopic(message.getTopicName());
+        addToMessageCounters(partitionTopic, -1);
+        recordConsumed(partitionTopic, message);
+        onRemovedFromSharedQueue(partitionTopic, message);
+    }
+
+    // Same as decreaseIncomingMessageSize for every message, with the topic counters updated once per topic
+    private void decreaseIncomingMessageSize(List<Message<T>> messages) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Message<T> message : messages) {
+            super.decreaseIncomingMessageSize(message);
+            counts.merge(partitionTopic(message.getTopicName()), 1, Integer::sum);
+        }
+        counts.forEach((partitionTopic, count) -> addToMessageCounters(partitionTopic, -count));
+        for (Message<T> message : messages) {
+            String partitionTopic = partitionTopic(message.getTopicName());
+            recordConsumed(partitionTopic, message);
+            onRemovedFromSharedQueue(partitionTopic, message);
+        }
+    }
+
+    private void onRemovedFromSharedQueue(String partitionTopic, Message<?> message) {
+        if (!messageClassQueues.isEmpty()) {
+            MessageClassQueues<Message<T>> queues = messageClassQueues.get(partitionTopic);
+            int messageClass = queues == null ? -1 : queues.getClassifier().classify(message);
+            if (messageClass >= 0) {
+                queues.onRemovedFromSharedQueue(messageClass);
+                dispatchClassifiedMessages(partitionTopic);
+            }
+        }
     }
 
     @Override
     protected void resetIncomingMessageSize() {
+        if (localReceiveQueues != null) {
+            // handed out before the reset, settled while their sizes are still counted
+            settleLocalReceiveQueues();
+        }
         super.resetIncomingMessageSize();
+        if (ackWatermarkTracker != null) {
+            ackWatermarkTracker.clear();
+        }
+        AtomicInteger droppedMessages = new AtomicInteger();
+        messageClassQueues.forEach((partitionTopic, queues) -> {
+            int cleared = queues.clear();
+            droppedMessages.addAndGet(cleared);
+            addToMessageCounters(partitionTopic, -cleared);
+        });
+        if (localReceiveQueues != null) {
+            // already taken off the shared queue but still counted against their topics, not handed out yet
+            List<Message<T>> cleared = localReceiveQueues.clear();
+            cleared.forEach(message -> addToMessageCounters(partitionTopic(message.getTopicName()), -1));
+            droppedMessages.addAndGet(cleared.size());
+        }
 
         TopicMessageCountTracker topicMessageCountTracker = new TopicMessageCountTracker();
-        incomingMessages.drainTo(topicMessageCountTracker);
+        droppedMessages.addAndGet(incomingMessages.drainTo(topicMessageCountTracker));
         topicMessageCountTracker.getCounters().forEach((topic, count) ->
-                messageCounters.get(partitionTopic(topic)).addAndGet(-1 * count));
+                addToMessageCounters(partitionTopic(topic), -1 * count));
+        WeightedConsumerEvents.incomingMessagesReset(droppedMessages.get());
     }
 
     protected void addMessageCounterForTopic(String topic) {
-        messageCounters.putIfAbsent(partitionTopic(topic), new AtomicInteger());
+        String partitionTopic = partitionTopic(topic);
+        messageCounters.putIfAbsent(partitionTopic, new AtomicInteger());
+        String group = topicThresholdDistribution.getGroup(partitionTopic);
+        if (group != null) {
+            groupMessageCounters.putIfAbsent(group, new AtomicInteger());
+        }
     }
 
     @Override
     protected Message<T> internalReceive() throws PulsarClientException {
         Message<T> message;
         try {
+            message = localReceiveQueues == null ? null : pollLocalReceiveQueues();
+            if (message != null) {
+                unAckedMessageTracker.add(message.getMessageId());
+                return message;
+            }
             message = incomingMessages.take();
             decreaseIncomingMessageSize(message);
             checkState(message instanceof TopicMessageImpl);
@@ -462,6 +964,11 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
     protected Message<T> internalReceive(int timeout, TimeUnit unit) throws PulsarClientException {
         Message<T> message;
         try {
+            message = localReceiveQueues == null ? null : pollLocalReceiveQueues();
+            if (message != null) {
+                unAckedMessageTracker.add(message.getMessageId());
+                return message;
+            }
             message = incomingMessages.poll(timeout, unit);
             if (message != null) {
                 decreaseIncomingMessageSize(message);
@@ -475,6 +982,113 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         }
     }
 
+    /**
+     * Receives up to the given number of messages and bytes, waiting until either limit is hit or the timeout
+     * expires. The byte limit is soft, the message which reaches it is included. Messages are taken off the shared
+     * queue in the order the topic thresholds put them there, so the mix reflects the weights, and are returned grouped
+     * by topic, highest weighted topics first, keeping their order within the topic. If the calling thread is
+     * interrupted once messages have been taken, they are returned with the interrupt status set, as they are already
+     * tracked for ack timeout.
+     *
+     * @param timeout
+     * @param maxMessages
+     * @param maxBytes
+     * @return messages keyed by topic name without partition suffix, empty if none arrived before the timeout
+     * @throws PulsarClientException
+     */
+    public Map<String, List<Message<T>>> poll(Duration timeout, int maxMessages, long maxBytes) throws PulsarClientException {
+        checkArgument(maxMessages > 0, "max messages should be positive");
+        checkArgument(maxBytes > 0, "max bytes should be positive");
+        if (listener != null) {
+            throw new PulsarClientException.InvalidConfigurationException("Cannot use receive() when a listener has been set");
+        }
+        if (getState() != State.Ready) {
+            throw new PulsarClientException.AlreadyClosedException("Consumer already closed");
+        }
+        Map<String, List<Message<T>>> messages = new HashMap<>();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int count = 0;
+        long bytes = 0;
+        if (localReceiveQueues != null) {
+            // parked in local queues before anything from the shared queue, they were taken off it earlier
+            List<Message<T>> localMessages = new ArrayList<>();
+            Message<T> message;
+            while (count < maxMessages && bytes < maxBytes && (message = localReceiveQueues.take()) != null) {
+                localMessages.add(message);
+                count++;
+                bytes += message.size();
+            }
+            if (!localMessages.isEmpty()) {
+                decreaseIncomingMessageSize(localMessages);
+                for (Message<T> localMessage : localMessages) {
+                    unAckedMessageTracker.add(localMessage.getMessageId());
+                    messages.computeIfAbsent(partitionTopic(localMessage.getTopicName()), key -> new ArrayList<>())
+                            .add(beforeConsume(localMessage));
+                }
+                resumeReceivingFromPausedConsumersIfNeeded();
+            }
+        }
+        try {
+            while (count < maxMessages && bytes < maxBytes) {
+                Message<T> message = incomingMessages.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (message == null) {
+                    break;
+                }
+                lock.writeLock().lock();
+                try {
+                    while (message != null) {
+                        decreaseIncomingMessageSize(message);
+                        unAckedMessageTracker.add(message.getMessageId());
+                        messages.computeIfAbsent(partitionTopic(message.getTopicName()), key -> new ArrayList<>())
+                                .add(beforeConsume(message));
+                        count++;
+                        bytes += message.size();
+                        message = count < maxMessages && bytes < maxBytes ? incomingMessages.poll() : null;
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                resumeReceivingFromPausedConsumersIfNeeded();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (messages.isEmpty()) {
+                throw PulsarClientException.unwrap(e);
+            }
+        }
+        List<String> topics = new ArrayList<>(messages.keySet());
+        topics.sort(Comparator.comparingInt((String topic) -> topicThresholdDistribution.getWeight(topic)).reversed());
+        Map<String, List<Message<T>>> result = new LinkedHashMap<>();
+        topics.forEach(topic -> result.put(topic, messages.get(topic)));
+        return result;
+    }
+
+    // Serves the calling thread from its local queue, refilled with a batch dealt by the topic weights off the shared
+    // queue once it runs dry, and steals from the other threads once the shared queue is empty as well. Messages in
+    // local queues still count against the thresholds of their topics. Messages handed out are accounted as consumed
+    // once per batch, when a local queue runs dry, rather than once per message.
+    private Message<T> pollLocalReceiveQueues() {
+        Message<T> message = localReceiveQueues.poll();
+        if (message == null) {
+            settleLocalReceiveQueues();
+            List<Message<T>> batch = new ArrayList<>(localReceiveQueues.getBatchSize());
+            incomingMessages.drainTo(batch, localReceiveQueues.getBatchSize());
+            message = localReceiveQueues.refill(batch);
+            if (message == null) {
+                message = localReceiveQueues.steal();
+            }
+        }
+        return message;
+    }
+
+    private void settleLocalReceiveQueues() {
+        List<Message<T>> handedOut = localReceiveQueues.settle();
+        if (!handedOut.isEmpty()) {
+            decreaseIncomingMessageSize(handedOut);
+            resumeReceivingFromPausedConsumersIfNeeded();
+        }
+    }
+
     @Override
     protected Messages<T> internalBatchReceive() throws PulsarClientException {
         try {
@@ -496,8 +1110,24 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         CompletableFuture<Messages<T>> result = cancellationHandler.createFuture();
         try {
             lock.writeLock().lock();
-            if (hasEnoughMessagesForBatchReceive()) {
-                MessagesImpl<T> messages = getNewMessagesImpl();
+            MessagesImpl<T> messages = getNewMessagesImpl();
+            if (localReceiveQueues != null) {
+                // parked in local queues, they were taken off the shared queue earlier and are not left waiting
+                List<Message<T>> localMessages = new ArrayList<>();
+                Message<T> localMessage;
+                while ((localMessage = localReceiveQueues.take()) != null) {
+                    if (!messages.canAdd(localMessage)) {
+                        localReceiveQueues.putBack(localMessage);
+                        break;
+                    }
+                    localMessages.add(localMessage);
+                    messages.add(beforeConsume(localMessage));
+                }
+                if (!localMessages.isEmpty()) {
+                    decreaseIncomingMessageSize(localMessages);
+                }
+            }
+            if (messages.size() > 0 || hasEnoughMessagesForBatchReceive()) {
                 Message<T> msgPeeked = incomingMessages.peek();
                 while (msgPeeked != null && messages.canAdd(msgPeeked)) {
                     Message<T> msg = incomingMessages.poll();
@@ -525,7 +1155,16 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
     protected CompletableFuture<Message<T>> internalReceiveAsync() {
         CompletableFutureCancellationHandler cancellationHandler = new CompletableFutureCancellationHandler();
         CompletableFuture<Message<T>> result = cancellationHandler.createFuture();
-        Message<T> message = incomingMessages.poll();
+        Message<T> message = localReceiveQueues == null ? null : localReceiveQueues.take();
+        if (message != null) {
+            // parked in a local queue, taken off the shared queue before anything still in it
+            decreaseIncomingMessageSize(message);
+            unAckedMessageTracker.add(message.getMessageId());
+            resumeReceivingFromPausedConsumersIfNeeded();
+            result.complete(message);
+            return result;
+        }
+        message = incomingMessages.poll();
         if (message == null) {
             pendingReceives.add(result);
             cancellationHandler.setCancelAction(() -> pendingReceives.remove(result));
@@ -539,6 +1178,31 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         return result;
     }
 
+    @Override
+    public void acknowledge(Message<?> message) throws PulsarClientException {
+        super.acknowledge(message);
+        recordAcknowledged(message);
+    }
+
+    @Override
+    public CompletableFuture<Void> acknowledgeAsync(Message<?> message) {
+        CompletableFuture<Void> future = super.acknowledgeAsync(message);
+        if (endToEndLatencyStats) {
+            future.thenRun(() -> recordAcknowledged(message));
+        }
+        return future;
+    }
+
+    // acknowledge(Messages) acks through this one as well
+    @Override
+    public CompletableFuture<Void> acknowledgeAsync(Messages<?> messages) {
+        CompletableFuture<Void> future = super.acknowledgeAsync(messages);
+        if (endToEndLatencyStats) {
+            future.thenRun(() -> messages.forEach(this::recordAcknowledged));
+        }
+        return future;
+    }
+
     @Override
     protected CompletableFuture<Void> doAcknowledge(MessageId messageId, AckType ackType,
                                                     Map<String, Long> properties,
@@ -559,6 +1223,12 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                 return FutureUtil.failedFuture(new PulsarClientException.NotConnectedException());
             }
         } else {
+            if (ackWatermarkTracker != null && txnImpl == null) {
+                return acknowledgeWatermark(topicMessageId, properties);
+            }
+            if (ackCoalescer != null && txnImpl == null && (properties == null || properties.isEmpty())) {
+                return ackCoalescer.add(topicMessageId);
+            }
             ConsumerImpl<T> consumer = consumers.get(topicMessageId.getTopicPartitionName());
 
             MessageId innerId = topicMessageId.getInnerMessageId();
@@ -568,10 +1238,23 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         }
     }
 
+    // The message is marked completed and the partition is acked cumulatively once its contiguous completed
+    // prefix advances, messages left out are redelivered from the last cumulative ack in case of a failure
+    private CompletableFuture<Void> acknowledgeWatermark(TopicMessageIdImpl topicMessageId, Map<String, Long> properties) {
+        unAckedMessageTracker.remove(topicMessageId);
+        MessageIdImpl ackId = ackWatermarkTracker.onCompleted(topicMessageId.getTopicPartitionName(),
+                topicMessageId.getInnerMessageId());
+        if (ackId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return doAcknowledge(new TopicMessageIdImpl(topicMessageId.getTopicPartitionName(), topicMessageId.getTopicName(), ackId),
+                AckType.Cumulative, properties, null);
+    }
+
     @Override
     protected CompletableFuture<Void> doAcknowledge(List<MessageId> messageIdList, AckType ackType, Map<String, Long> properties, TransactionImpl txn) {
         List<CompletableFuture<Void>> resultFutures = new ArrayList<>();
-        if (ackType == AckType.Cumulative) {
+        if (ackType == AckType.Cumulative || (ackWatermarkTracker != null && txn == null)) {
             messageIdList.forEach(messageId -> resultFutures.add(doAcknowledge(messageId, ackType, properties, txn)));
             return CompletableFuture.allOf(resultFutures.toArray(new CompletableFuture[0]));
         } else {
@@ -624,6 +1307,17 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         }
     }
 
+    // the sub consumer needs the message rather than its id to back off by redelivery count
+    @Override
+    public void negativeAcknowledge(Message<?> message) {
+        checkArgument(message instanceof TopicMessageImpl);
+        TopicMessageIdImpl topicMessageId = (TopicMessageIdImpl) message.getMessageId();
+
+        ConsumerImpl<T> consumer = consumers.get(topicMessageId.getTopicPartitionName());
+        consumer.negativeAcknowledge(((TopicMessageImpl<?>) message).getMessage());
+        unAckedMessageTracker.remove(topicMessageId);
+    }
+
     @Override
     public void negativeAcknowledge(MessageId messageId) {
         checkArgument(messageId instanceof TopicMessageIdImpl);
@@ -631,6 +1325,8 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
 
         ConsumerImpl<T> consumer = consumers.get(topicMessageId.getTopicPartitionName());
         consumer.negativeAcknowledge(topicMessageId.getInnerMessageId());
+        // redelivered on the negative ack schedule of the topic, not again on ack timeout
+        unAckedMessageTracker.remove(topicMessageId);
     }
 
     @Override
@@ -681,6 +1377,30 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
             partitionsAutoUpdateTimeout = null;
         }
 
+        if (catchUpCheckTimeout != null) {
+            catchUpCheckTimeout.cancel();
+            catchUpCheckTimeout = null;
+        }
+
+        if (receiveQueueModeTimeout != null) {
+            receiveQueueModeTimeout.cancel();
+            receiveQueueModeTimeout = null;
+        }
+
+        if (ackCoalesceTimeout != null) {
+            ackCoalesceTimeout.cancel();
+            ackCoalesceTimeout = null;
+        }
+
+        if (eventSampleTimeout != null) {
+            eventSampleTimeout.cancel();
+            eventSampleTimeout = null;
+        }
+
+        if (ackCoalescer != null) {
+            ackCoalescer.flush();
+        }
+
         CompletableFuture<Void> closeFuture = new CompletableFuture<>();
         List<CompletableFuture<Void>> futureList = consumers.values().stream()
                 .map(c -> c.closeAsync()).collect(Collectors.toList());
@@ -732,6 +1452,9 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
 
     @Override
     public void redeliverUnacknowledgedMessages() {
+        if (ackCoalescer != null) {
+            ackCoalescer.flush();
+        }
         lock.writeLock().lock();
         try {
             consumers.values().stream().forEach(consumer -> {
@@ -887,7 +1610,9 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
 
     @Override
     public int numMessagesInQueue() {
-        return incomingMessages.size() + consumers.values().stream().mapToInt(ConsumerImpl::numMessagesInQueue).sum();
+        return incomingMessages.size() + consumers.values().stream().mapToInt(ConsumerImpl::numMessagesInQueue).sum()
+                + messageClassQueues.values().stream().mapToInt(MessageClassQueues::size).sum()
+                + (localReceiveQueues == null ? 0 : localReceiveQueues.size());
     }
 
     @Override
@@ -901,6 +1626,39 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         return stats;
     }
 
+    /**
+     * Returns per topic occupancy, pauses and consumption shares, with rates covering the interval since the previous
+     * call, or null if weighted stats are disabled. Readers which take snapshots independently of each other should
+     * rather keep an interval of their own, see {@link #getWeightedStats(WeightedConsumerStats.Interval)}.
+     */
+    public WeightedConsumerStats getWeightedStats() {
+        return getWeightedStats(weightedStatsInterval);
+    }
+
+    /**
+     * Returns per topic occupancy, pauses and consumption shares, with rates covering the interval since the previous
+     * call with the same interval, or null if weighted stats are disabled
+     *
+     * @param interval
+     */
+    public WeightedConsumerStats getWeightedStats(WeightedConsumerStats.Interval interval) {
+        if (weightedStats == null) {
+            return null;
+        }
+        Set<String> partitionTopics = consumers.keySet().stream()
+                .map(WeightedMultiTopicsConsumerImpl::partitionTopic)
+                .collect(Collectors.toSet());
+        return weightedStats.snapshot(interval, partitionTopics,
+                partitionTopic -> {
+                    AtomicInteger counter = messageCounters.get(partitionTopic);
+                    return counter == null ? 0 : counter.get();
+                },
+                this::getThreshold,
+                topicThresholdDistribution::getValue,
+                isReceiveQueueThrottled(),
+                getReceiveQueueModeSwitchCount());
+    }
+
     public UnAckedMessageTracker getUnAckedMessageTracker() {
         return unAckedMessageTracker;
     }
@@ -941,6 +1699,31 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         return (topicName != null) ? topicName.toString() : null;
     }
 
+    // Negative ack delay and backoff are applied by the sub consumers, ack timeouts by the unacked message tracker
+    private void applyRedeliveryPolicy(ConsumerConfigurationData<T> configurationData, String topicName) {
+        TopicRedeliveryPolicy policy = redeliveryPolicies == null ? null : redeliveryPolicies.getPolicy(partitionTopic(topicName));
+        if (policy == null) {
+            return;
+        }
+        configurationData.setNegativeAckRedeliveryDelayMicros(TimeUnit.MILLISECONDS.toMicros(policy.getNegativeAckDelayMs()));
+        if (policy.hasNegativeAckBackoff()) {
+            configurationData.setNegativeAckRedeliveryBackoff(MultiplierRedeliveryBackoff.builder()
+                    .minDelayMs(policy.getNegativeAckDelayMs())
+                    .maxDelayMs(policy.getNegativeAckMaxDelayMs())
+                    .build());
+        } else {
+            configurationData.setNegativeAckRedeliveryBackoff(null);
+        }
+    }
+
+    private void removeTrackedTopicMessages(String topicName) {
+        if (unAckedMessageTracker instanceof CompactUnAckedTopicMessageTracker) {
+            ((CompactUnAckedTopicMessageTracker) unAckedMessageTracker).removeTopicMessages(topicName);
+        } else if (unAckedMessageTracker instanceof UnAckedTopicMessageTracker) {
+            ((UnAckedTopicMessageTracker) unAckedMessageTracker).removeTopicMessages(topicName);
+        }
+    }
+
     private void removeTopic(String topic) {
         String fullTopicName = getFullTopicName(topic);
         if (fullTopicName != null) {
@@ -1041,6 +1824,7 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
             try {
                 int receiverQueueSize = getReceiverQueueSize(topicName);
                 configurationData.setReceiverQueueSize(receiverQueueSize);
+                applyRedeliveryPolicy(configurationData, topicName);
             } catch (Exception ex) {
                 subscribeResult.completeExceptionally(new PulsarClientException(ex));
                 return;
@@ -1052,13 +1836,16 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                             partitionIndex -> {
                                 String partitionName = TopicName.get(topicName).getPartition(partitionIndex).toString();
                                 CompletableFuture<Consumer<T>> subFuture = new CompletableFuture<>();
-                                ConsumerImpl<T> newConsumer = ConsumerImpl.newConsumerImpl(client, partitionName,
-                                        configurationData, client.externalExecutorProvider(),
-                                        partitionIndex, true, subFuture,
-                                        startMessageId, schema, interceptors,
-                                        createIfDoesNotExist, startMessageRollbackDurationInSec);
-                                addMessageCounterForTopic(newConsumer.getTopic());
-                                consumers.putIfAbsent(newConsumer.getTopic(), newConsumer);
+                                ConsumerImpl<T> newConsumer = newSubConsumer(partitionName, configurationData,
+                                        partitionIndex, subFuture, startMessageId, schema, createIfDoesNotExist,
+                                        startMessageRollbackDurationInSec);
+                                synchronized (pauseMutex) {
+                                    if (paused || isTopicPaused(newConsumer)) {
+                                        newConsumer.pause();
+                                    }
+                                    addMessageCounterForTopic(newConsumer.getTopic());
+                                    consumers.putIfAbsent(newConsumer.getTopic(), newConsumer);
+                                }
                                 return subFuture;
                             })
                     .collect(Collectors.toList());
@@ -1070,6 +1857,7 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
             try {
                 int receiverQueueSize = getReceiverQueueSize(topicName);
                 configurationData.setReceiverQueueSize(receiverQueueSize);
+                applyRedeliveryPolicy(configurationData, topicName);
             } catch (Exception ex) {
                 subscribeResult.completeExceptionally(new PulsarClientException(ex));
                 return;
@@ -1082,13 +1870,11 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                     subscribeResult.completeExceptionally(new PulsarClientException(errorMessage));
                     return existingValue;
                 } else {
-                    ConsumerImpl<T> newConsumer = ConsumerImpl.newConsumerImpl(client, topicName, configurationData,
-                            client.externalExecutorProvider(), -1,
-                            true, subFuture, null, schema, interceptors,
-                            createIfDoesNotExist);
+                    ConsumerImpl<T> newConsumer = newSubConsumer(topicName, configurationData, -1, subFuture,
+                            null, schema, createIfDoesNotExist, 0);
                     addMessageCounterForTopic(newConsumer.getTopic());
                     synchronized (pauseMutex) {
-                        if (paused) {
+                        if (paused || isTopicPaused(newConsumer)) {
                             newConsumer.pause();
                         }
                     }
@@ -1125,8 +1911,27 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                 });
     }
 
+    // Benchmarks override this to plug in-memory sub-consumers, so that the consumer can be exercised without a broker
+    @VisibleForTesting
+    ConsumerImpl<T> newSubConsumer(String topicName, ConsumerConfigurationData<T> configurationData, int partitionIndex,
+                                   CompletableFuture<Consumer<T>> subFuture, MessageId startMessageId, Schema<T> schema,
+                                   boolean createIfDoesNotExist, long startMessageRollbackDurationInSec) {
+        return ConsumerImpl.newConsumerImpl(client, topicName, configurationData, client.externalExecutorProvider(),
+                partitionIndex, true, subFuture, startMessageId, schema, interceptors, createIfDoesNotExist,
+                startMessageRollbackDurationInSec);
+    }
+
+    // Clock of the rate limiters, invoked from the constructor. Simulations override this along with the client timer
+    // to run rate limits in virtual time
+    @VisibleForTesting
+    LongSupplier nanoClock() {
+        return System::nanoTime;
+    }
+
+    // With auto throttle, receiver queues are sized at the topic threshold and the unthrottled mode is achieved by
+    // granting extra permits, as the size of the receiver queue cannot be changed once the consumer is created
     private int getReceiverQueueSize(String topicName) {
-        int receiverQueueSize = throttleReceiverQueue
+        int receiverQueueSize = throttleReceiverQueue || receiveQueueModeDetector != null
                 ? topicThresholdDistribution.getValue(topicName)
                 : topicThresholdDistribution.getMaxValue();
         return receiverQueueSize;
@@ -1185,6 +1990,10 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                     return TopicName.get(consumerTopicName).getPartitionedTopicName().equals(topicPartName);
                 }).collect(Collectors.toList());
 
+        if (ackCoalescer != null) {
+            consumersToUnsub.forEach(consumer -> ackCoalescer.removePartition(consumer.getTopic()));
+        }
+
         List<CompletableFuture<Void>> futureList = consumersToUnsub.stream()
                 .map(ConsumerImpl::unsubscribeAsync).collect(Collectors.toList());
 
@@ -1194,11 +2003,27 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                         consumersToUnsub.forEach(consumer1 -> {
                             consumers.remove(consumer1.getTopic());
                             pausedConsumers.remove(consumer1);
+                            permitAdjustments.remove(consumer1.getTopic());
                             allTopicPartitionsNumber.decrementAndGet();
                         });
 
                         removeTopic(topicName);
-                        ((UnAckedTopicMessageTracker) unAckedMessageTracker).removeTopicMessages(topicName);
+                        pausedTopics.remove(topicPartName);
+                        topicCapacities.remove(topicPartName);
+                        clearMessageClassQueues(topicPartName);
+                        removeTrackedTopicMessages(topicName);
+                        if (topicLagTracker != null) {
+                            topicLagTracker.removeTopic(topicName);
+                        }
+                        if (throughputLimiter != null) {
+                            throughputLimiter.removeTopic(partitionTopic(topicName));
+                        }
+                        if (ackWatermarkTracker != null) {
+                            ackWatermarkTracker.removeTopic(topicName);
+                        }
+                        if (weightedStats != null) {
+                            weightedStats.removeTopic(topicPartName);
+                        }
 
                         unsubscribeFuture.complete(null);
                         log.info("[{}] [{}] [{}] Unsubscribed Topics Consumer, allTopicPartitionsNumber: {}",
@@ -1233,6 +2058,10 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                     return TopicName.get(consumerTopicName).getPartitionedTopicName().equals(topicPartName);
                 }).collect(Collectors.toList());
 
+        if (ackCoalescer != null) {
+            consumersToClose.forEach(consumer -> ackCoalescer.removePartition(consumer.getTopic()));
+        }
+
         List<CompletableFuture<Void>> futureList = consumersToClose.stream()
                 .map(ConsumerImpl::closeAsync).collect(Collectors.toList());
 
@@ -1242,11 +2071,27 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                         consumersToClose.forEach(consumer1 -> {
                             consumers.remove(consumer1.getTopic());
                             pausedConsumers.remove(consumer1);
+                            permitAdjustments.remove(consumer1.getTopic());
                             allTopicPartitionsNumber.decrementAndGet();
                         });
 
                         removeTopic(topicName);
-                        ((UnAckedTopicMessageTracker) unAckedMessageTracker).removeTopicMessages(topicName);
+                        pausedTopics.remove(topicPartName);
+                        topicCapacities.remove(topicPartName);
+                        clearMessageClassQueues(topicPartName);
+                        removeTrackedTopicMessages(topicName);
+                        if (topicLagTracker != null) {
+                            topicLagTracker.removeTopic(topicName);
+                        }
+                        if (throughputLimiter != null) {
+                            throughputLimiter.removeTopic(partitionTopic(topicName));
+                        }
+                        if (ackWatermarkTracker != null) {
+                            ackWatermarkTracker.removeTopic(topicName);
+                        }
+                        if (weightedStats != null) {
+                            weightedStats.removeTopic(topicPartName);
+                        }
 
                         unsubscribeFuture.complete(null);
                         log.info("[{}] [{}] [{}] Removed Topics Consumer, allTopicPartitionsNumber: {}",
@@ -1294,8 +2139,90 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
     public void resume() {
         synchronized (pauseMutex) {
             paused = false;
-            consumers.forEach((name, consumer) -> consumer.resume());
+            consumers.forEach((name, consumer) -> {
+                if (!isTopicPaused(consumer)) {
+                    consumer.resume();
+                }
+            });
+        }
+    }
+
+    /**
+     * Pauses consumption of a single topic, across all of its partitions. Messages of the topic which are already in
+     * the shared queue stay there, and its share of the shared queue goes to the other topics until it is resumed.
+     *
+     * @param topicName
+     */
+    public void pauseTopic(String topicName) {
+        checkArgument(TopicName.isValid(topicName), "Invalid topic name:" + topicName);
+        String partitionTopic = TopicName.get(topicName).getPartitionedTopicName();
+        synchronized (pauseMutex) {
+            if (!pausedTopics.add(partitionTopic)) {
+                return;
+            }
+            consumers.values().stream()
+                    .filter(consumer -> partitionTopic(consumer.getTopic()).equals(partitionTopic))
+                    .forEach(ConsumerImpl::pause);
+        }
+        log.info("[{}] [{}] Paused topic {}", topic, subscription, partitionTopic);
+    }
+
+    public void resumeTopic(String topicName) {
+        checkArgument(TopicName.isValid(topicName), "Invalid topic name:" + topicName);
+        String partitionTopic = TopicName.get(topicName).getPartitionedTopicName();
+        synchronized (pauseMutex) {
+            if (!pausedTopics.remove(partitionTopic)) {
+                return;
+            }
+            if (!paused && !isTopicPaused(partitionTopic, true)) {
+                consumers.values().stream()
+                        .filter(consumer -> partitionTopic(consumer.getTopic()).equals(partitionTopic))
+                        .forEach(ConsumerImpl::resume);
+            }
+        }
+        log.info("[{}] [{}] Resumed topic {}", topic, subscription, partitionTopic);
+        resumePausedConsumersBelowThreshold(Collections.singleton(partitionTopic));
+        resumeReceivingFromPausedConsumersIfNeeded();
+    }
+
+    public boolean isTopicPaused(String topicName) {
+        return pausedTopics.contains(TopicName.get(topicName).getPartitionedTopicName());
+    }
+
+    @Override
+    public void reportCapacity(String topicName, double capacity) {
+        checkArgument(TopicName.isValid(topicName), "Invalid topic name:" + topicName);
+        checkArgument(capacity >= 0 && capacity <= 1, "capacity should be in the range [0,1]");
+        String partitionTopic = TopicName.get(topicName).getPartitionedTopicName();
+        Map<String, Integer> previousThresholds = getThresholdsIfRecorded(Collections.singleton(partitionTopic));
+        boolean resumed;
+        synchronized (pauseMutex) {
+            Double previous = capacity >= 1 ? topicCapacities.remove(partitionTopic) : topicCapacities.put(partitionTopic, capacity);
+            double previousCapacity = previous == null ? 1 : previous;
+            resumed = capacity > previousCapacity;
+            if (previousCapacity > 0 && capacity <= 0) {
+                consumers.values().stream()
+                        .filter(consumer -> partitionTopic(consumer.getTopic()).equals(partitionTopic))
+                        .forEach(ConsumerImpl::pause);
+            } else if (previousCapacity <= 0 && capacity > 0 && !paused && !isTopicPaused(partitionTopic, false)) {
+                consumers.values().stream()
+                        .filter(consumer -> partitionTopic(consumer.getTopic()).equals(partitionTopic))
+                        .forEach(ConsumerImpl::resume);
+            }
         }
+        recordThresholdChanges(previousThresholds, "capacity");
+        // applied on every report to re-grant permits lost on reconnection of an internal consumer
+        consumers.values().stream()
+                .filter(consumer -> partitionTopic(consumer.getTopic()).equals(partitionTopic))
+                .forEach(this::adjustPermits);
+        if (resumed) {
+            resumePausedConsumersBelowThreshold(Collections.singleton(partitionTopic));
+            resumeReceivingFromPausedConsumersIfNeeded();
+        }
+    }
+
+    public double getCapacity(String topicName) {
+        return topicCapacities.getOrDefault(TopicName.get(topicName).getPartitionedTopicName(), 1.0);
     }
 
     @Override
@@ -1354,13 +2281,11 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
                             ConsumerConfigurationData<T> configurationData = getInternalConsumerConfig();
                             int receiverQueueSize = getReceiverQueueSize(topicName);
                             configurationData.setReceiverQueueSize(receiverQueueSize);
-                            ConsumerImpl<T> newConsumer = ConsumerImpl.newConsumerImpl(
-                                    client, partitionName, configurationData,
-                                    client.externalExecutorProvider(),
-                                    partitionIndex, true, subFuture, null, schema, interceptors,
-                                    true /* createTopicIfDoesNotExist */);
+                            applyRedeliveryPolicy(configurationData, topicName);
+                            ConsumerImpl<T> newConsumer = newSubConsumer(partitionName, configurationData,
+                                    partitionIndex, subFuture, null, schema, true /* createTopicIfDoesNotExist */, 0);
                             synchronized (pauseMutex) {
-                                if (paused) {
+                                if (paused || isTopicPaused(newConsumer)) {
                                     newConsumer.pause();
                                 }
                                 addMessageCounterForTopic(newConsumer.getTopic());
@@ -1412,6 +2337,193 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         }
     };
 
+    private final TimerTask catchUpCheckTimerTask = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) throws Exception {
+            if (timeout.isCancelled() || getState() != State.Ready) {
+                return;
+            }
+
+            // if last check not completed yet, do nothing.
+            if (catchUpCheckFuture == null || catchUpCheckFuture.isDone()) {
+                catchUpCheckFuture = checkLaggingTopics();
+            }
+
+            // schedule the next re-check task
+            catchUpCheckTimeout = client.timer()
+                    .newTimeout(catchUpCheckTimerTask, catchUpCheckIntervalSeconds, TimeUnit.SECONDS);
+        }
+    };
+
+    private final TimerTask ackCoalesceTimerTask = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) throws Exception {
+            if (timeout.isCancelled() || getState() == State.Closing || getState() == State.Closed) {
+                return;
+            }
+
+            ackCoalescer.flush();
+
+            // schedule the next flush
+            ackCoalesceTimeout = client.timer()
+                    .newTimeout(ackCoalesceTimerTask, ackCoalesceTimeMs, TimeUnit.MILLISECONDS);
+        }
+    };
+
+    private final TimerTask eventSampleTimerTask = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) throws Exception {
+            if (timeout.isCancelled() || getState() == State.Closing || getState() == State.Closed) {
+                return;
+            }
+
+            if (getState() == State.Ready) {
+                sampleEvents();
+            }
+
+            // schedule the next sample
+            eventSampleTimeout = client.timer()
+                    .newTimeout(eventSampleTimerTask, eventIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    };
+
+    // A topic is paused while any of its partitions is parked in the paused consumers, for whichever reason
+    private void sampleEvents() {
+        Set<String> partitionTopics = consumers.keySet().stream()
+                .map(WeightedMultiTopicsConsumerImpl::partitionTopic)
+                .collect(Collectors.toSet());
+        Set<String> pausedPartitionTopics = new HashSet<>();
+        pausedConsumers.forEach(consumer -> pausedPartitionTopics.add(partitionTopic(consumer.getTopic())));
+        pausedPartitionTopics.addAll(pausedTopics);
+        Set<String> queuedPartitionTopics = new HashSet<>();
+        messageCounters.forEach((partitionTopic, counter) -> {
+            if (counter.get() > 0) {
+                queuedPartitionTopics.add(partitionTopic);
+            }
+        });
+        eventDispatcher.sample(partitionTopics, pausedPartitionTopics, queuedPartitionTopics,
+                topicThresholdDistribution::getValue, System.currentTimeMillis());
+    }
+
+    // Compare the last message received from every partition against the last message in the broker and boost
+    // thresholds of the topics which have a lagging partition
+    private CompletableFuture<Void> checkLaggingTopics() {
+        long now = System.currentTimeMillis();
+        Set<String> laggingTopics = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Void>> futureList = consumers.values().stream()
+                .map(consumer -> consumer.getLastMessageIdAsync()
+                        .thenAccept(lastMessageId -> {
+                            if (topicLagTracker.isLagging(consumer.getTopic(), lastMessageId, now)) {
+                                laggingTopics.add(partitionTopic(consumer.getTopic()));
+                            }
+                        })
+                        .exceptionally(ex -> {
+                            log.warn("[{}] Failed to get last message id of {} for lag check: {}",
+                                    topic, consumer.getTopic(), ex.getMessage());
+                            return null;
+                        }))
+                .collect(Collectors.toList());
+
+        return FutureUtil.waitForAll(futureList).thenRun(() -> {
+            Map<String, Integer> previousThresholds = getThresholdsIfRecorded(messageCounters.keySet());
+            topicLagTracker.setBoostedTopics(laggingTopics);
+            recordThresholdChanges(previousThresholds, "catch up boost");
+            resumePausedConsumersBelowThreshold(laggingTopics);
+        });
+    }
+
+    private final TimerTask receiveQueueModeTimerTask = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) throws Exception {
+            if (timeout.isCancelled() || getState() == State.Closing || getState() == State.Closed) {
+                return;
+            }
+
+            if (getState() == State.Ready) {
+                sampleReceiveQueueMode();
+            }
+
+            // schedule the next sample
+            receiveQueueModeTimeout = client.timer()
+                    .newTimeout(receiveQueueModeTimerTask, RECEIVE_QUEUE_MODE_SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    };
+
+    // A consumer is lagging when every topic has messages waiting in the shared queue and the receiver queues of
+    // internal consumers are full, since the broker has more to deliver than the application is able to consume
+    private void sampleReceiveQueueMode() {
+        List<ConsumerImpl<T>> consumerList = new ArrayList<>(consumers.values());
+        if (consumerList.isEmpty()) {
+            return;
+        }
+        boolean allTopicsQueued = messageCounters.values().stream().allMatch(counter -> counter.get() > 0);
+        double saturation = 0;
+        for (ConsumerImpl<T> consumer : consumerList) {
+            PermitAdjustment holder = permitAdjustments.get(consumer.getTopic());
+            int queueSize = Math.max(1, topicThresholdDistribution.getValue(partitionTopic(consumer.getTopic()))
+                    + (holder == null ? 0 : holder.adjustment));
+            saturation += Math.min(1.0, consumer.numMessagesInQueue() / (double) queueSize);
+        }
+        saturation /= consumerList.size();
+
+        receiveQueueModeDetector.sample(allTopicsQueued, saturation);
+        // applied on every sample to re-grant permits lost on reconnection of an internal consumer
+        consumerList.forEach(this::adjustPermits);
+    }
+
+    // Permits of a consumer are adjusted over its receiver queue size: extra permits up to the max threshold are
+    // granted in unthrottled mode of auto throttle, and permits are revoked in proportion to the reduced capacity of
+    // the topic. At most half the permits are revoked, as the consumer stops asking the broker for more messages
+    // once fewer than half of its permits get paid back. Revoked permits go negative on the internal consumer and
+    // are paid back by messages which have already been dispatched
+    private void adjustPermits(ConsumerImpl<T> consumer) {
+        if (!consumer.isConnected()) {
+            return;
+        }
+        String partitionTopic = partitionTopic(consumer.getTopic());
+        int target = 0;
+        if (receiveQueueModeDetector != null && !receiveQueueModeDetector.isThrottled()) {
+            target = Math.max(0, topicThresholdDistribution.getMaxValue() - topicThresholdDistribution.getValue(partitionTopic));
+        }
+        Double capacity = topicCapacities.isEmpty() ? null : topicCapacities.get(partitionTopic);
+        if (capacity != null) {
+            int nominal = getReceiverQueueSize(partitionTopic) + target;
+            target -= Math.min(nominal / 2, (int) Math.round(nominal * (1 - capacity)));
+        }
+        PermitAdjustment holder = permitAdjustments.computeIfAbsent(consumer.getTopic(),
+                key -> new PermitAdjustment(consumer.getLastDisconnectedTimestamp()));
+        synchronized (holder) {
+            if (holder.lastDisconnectedTimestamp != consumer.getLastDisconnectedTimestamp()) {
+                // the consumer has re-sent permits of its receiver queue on reconnection, the adjustment is lost
+                holder.lastDisconnectedTimestamp = consumer.getLastDisconnectedTimestamp();
+                holder.adjustment = 0;
+            }
+            int delta = target - holder.adjustment;
+            if (delta != 0) {
+                consumer.increaseAvailablePermits(delta);
+                holder.adjustment = target;
+                if (log.isDebugEnabled()) {
+                    log.debug("Adjusted permits of consumer for topic {} by {}", consumer.getTopic(), delta);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the rate in messages per second currently allotted to the topic out of the consumer wide cap
+     */
+    public double getThroughputShare(String topicName) {
+        return throughputLimiter == null ? 0 : throughputLimiter.getShare(partitionTopic(topicName));
+    }
+
+    public boolean isReceiveQueueThrottled() {
+        return receiveQueueModeDetector == null ? throttleReceiverQueue : receiveQueueModeDetector.isThrottled();
+    }
+
+    public long getReceiveQueueModeSwitchCount() {
+        return receiveQueueModeDetector == null ? 0 : receiveQueueModeDetector.getSwitchCount();
+    }
+
     @VisibleForTesting
     public Timeout getPartitionsAutoUpdateTimeout() {
         return partitionsAutoUpdateTimeout;
@@ -1451,6 +2563,15 @@ public class WeightedMultiTopicsConsumerImpl<T> extends ConsumerBase<T> {
         }
     }
 
+    private static class PermitAdjustment {
+        private long lastDisconnectedTimestamp;
+        private int adjustment = 0;
+
+        private PermitAdjustment(long lastDisconnectedTimestamp) {
+            this.lastDisconnectedTimestamp = lastDisconnectedTimestamp;
+        }
+    }
+
     // This listener is triggered when topics partitions are updated.
     private class TopicsPartitionChangedListener implements PartitionsChangedListener {
         // Check partitions changes of passed in topics, and subscribe new added partitions.
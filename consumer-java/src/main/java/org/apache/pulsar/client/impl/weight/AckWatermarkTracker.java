@@ -0,0 +1,216 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.BatchMessageIdImpl;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.apache.pulsar.common.naming.TopicName;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks completion of messages per partition to replace individual acks with cumulative acks. Messages are recorded
+ * in the order they are received from a partition, and once the contiguous prefix of completed messages advances
+ * past the end of an entry, the entry is returned to be acked cumulatively. Partially completed batches are never
+ * acked, so delivery stays at-least-once. Ids are held in primitive ring buffers of the partition.
+ * Only applicable to subscriptions which allow cumulative acks, i.e. Exclusive and Failover.
+ */
+public class AckWatermarkTracker {
+    private static final int INITIAL_CAPACITY = 64;
+    private final Map<String, PartitionWatermark> partitions = new ConcurrentHashMap<>();
+
+    public void onReceived(String topicPartition, int partitionIndex, MessageId messageId) {
+        if (!(messageId instanceof MessageIdImpl)) {
+            return;
+        }
+        PartitionWatermark watermark = partitions.get(topicPartition);
+        if (watermark == null) {
+            watermark = partitions.computeIfAbsent(topicPartition, key -> new PartitionWatermark(partitionIndex));
+        }
+        MessageIdImpl id = (MessageIdImpl) messageId;
+        if (id instanceof BatchMessageIdImpl) {
+            BatchMessageIdImpl batchId = (BatchMessageIdImpl) id;
+            watermark.append(id.getLedgerId(), id.getEntryId(), batchId.getBatchIndex(), batchId.getBatchSize());
+        } else {
+            watermark.append(id.getLedgerId(), id.getEntryId(), -1, 0);
+        }
+    }
+
+    /**
+     * Marks the message as completed and returns the id of the last entry which can be acked cumulatively, or null
+     * if the contiguous prefix did not advance past an entry. Messages which are not being tracked are ignored,
+     * which happens when they have been redelivered in the meantime.
+     */
+    public MessageIdImpl onCompleted(String topicPartition, MessageId messageId) {
+        if (!(messageId instanceof MessageIdImpl)) {
+            return null;
+        }
+        PartitionWatermark watermark = partitions.get(topicPartition);
+        if (watermark == null) {
+            return null;
+        }
+        MessageIdImpl id = (MessageIdImpl) messageId;
+        int batchIndex = id instanceof BatchMessageIdImpl ? ((BatchMessageIdImpl) id).getBatchIndex() : -1;
+        return watermark.complete(id.getLedgerId(), id.getEntryId(), batchIndex);
+    }
+
+    /**
+     * Returns the number of messages received but not yet covered by a cumulative ack
+     */
+    public int getPendingCount(String topicPartition) {
+        PartitionWatermark watermark = partitions.get(topicPartition);
+        return watermark == null ? 0 : watermark.size();
+    }
+
+    // messages are redelivered from the last cumulative ack on redelivery and seek
+    public void clear() {
+        partitions.values().forEach(PartitionWatermark::clear);
+    }
+
+    public void removeTopic(String topic) {
+        String partitionedTopic = TopicName.get(topic).getPartitionedTopicName();
+        partitions.keySet().removeIf(topicPartition ->
+                TopicName.get(topicPartition).getPartitionedTopicName().equals(partitionedTopic));
+    }
+
+    private static class PartitionWatermark {
+        private final int partitionIndex;
+        private long[] ledgerIds = new long[INITIAL_CAPACITY];
+        private long[] entryIds = new long[INITIAL_CAPACITY];
+        private int[] batchIndexes = new int[INITIAL_CAPACITY];
+        private int[] batchSizes = new int[INITIAL_CAPACITY];
+        private boolean[] completed = new boolean[INITIAL_CAPACITY];
+        private int head = 0;
+        private int size = 0;
+
+        private PartitionWatermark(int partitionIndex) {
+            this.partitionIndex = partitionIndex;
+        }
+
+        synchronized void append(long ledgerId, long entryId, int batchIndex, int batchSize) {
+            if (size > 0) {
+                int tail = slot(size - 1);
+                if (compare(ledgerId, entryId, batchIndex, tail) <= 0) {
+                    // the partition went back, previously received messages are going to be redelivered
+                    clear();
+                }
+            }
+            if (size == ledgerIds.length) {
+                grow();
+            }
+            int slot = slot(size);
+            ledgerIds[slot] = ledgerId;
+            entryIds[slot] = entryId;
+            batchIndexes[slot] = batchIndex;
+            batchSizes[slot] = batchSize;
+            completed[slot] = false;
+            size++;
+        }
+
+        synchronized MessageIdImpl complete(long ledgerId, long entryId, int batchIndex) {
+            int low = 0;
+            int high = size - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(ledgerId, entryId, batchIndex, slot(mid));
+                if (cmp == 0) {
+                    found = mid;
+                    break;
+                } else if (cmp > 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (found < 0) {
+                return null;
+            }
+            completed[slot(found)] = true;
+            if (found != 0) {
+                return null;
+            }
+
+            // advance over completed messages, stopping at the end of the last fully completed entry
+            int advance = 0;
+            int entryEnd = -1;
+            while (advance < size && completed[slot(advance)]) {
+                int slot = slot(advance);
+                if (batchIndexes[slot] < 0 || batchIndexes[slot] >= batchSizes[slot] - 1) {
+                    entryEnd = advance;
+                }
+                advance++;
+            }
+            if (entryEnd < 0) {
+                return null;
+            }
+            int last = slot(entryEnd);
+            MessageIdImpl ackId = new MessageIdImpl(ledgerIds[last], entryIds[last], partitionIndex);
+            head = slot(entryEnd + 1);
+            size -= entryEnd + 1;
+            return ackId;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        private int slot(int index) {
+            return (head + index) & (ledgerIds.length - 1);
+        }
+
+        private int compare(long ledgerId, long entryId, int batchIndex, int slot) {
+            int cmp = Long.compare(ledgerId, ledgerIds[slot]);
+            if (cmp == 0) {
+                cmp = Long.compare(entryId, entryIds[slot]);
+            }
+            if (cmp == 0) {
+                cmp = Integer.compare(batchIndex, batchIndexes[slot]);
+            }
+            return cmp;
+        }
+
+        private void grow() {
+            int capacity = ledgerIds.length << 1;
+            long[] newLedgerIds = new long[capacity];
+            long[] newEntryIds = new long[capacity];
+            int[] newBatchIndexes = new int[capacity];
+            int[] newBatchSizes = new int[capacity];
+            boolean[] newCompleted = new boolean[capacity];
+            for (int i = 0; i < size; i++) {
+                int slot = slot(i);
+                newLedgerIds[i] = ledgerIds[slot];
+                newEntryIds[i] = entryIds[slot];
+                newBatchIndexes[i] = batchIndexes[slot];
+                newBatchSizes[i] = batchSizes[slot];
+                newCompleted[i] = completed[slot];
+            }
+            ledgerIds = newLedgerIds;
+            entryIds = newEntryIds;
+            batchIndexes = newBatchIndexes;
+            batchSizes = newBatchSizes;
+            completed = newCompleted;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+/**
+ * Lets the application report the capacity available downstream of a topic, so that the consumer applies
+ * backpressure instead of prefetching messages which cannot be processed soon. The effective threshold and the
+ * permits of the topic are scaled down in proportion to the capacity, and a topic at zero capacity is paused until
+ * a positive capacity is reported.
+ */
+public interface CapacityFeedback {
+
+    /**
+     * Reports the fraction of nominal capacity available downstream of the topic, in the range [0,1]
+     *
+     * @param topic
+     * @param capacity
+     */
+    void reportCapacity(String topic, double capacity);
+
+    /**
+     * Reports the recent processing latency of messages of the topic, capacity is derived as the ratio of the
+     * target latency to the observed latency
+     *
+     * @param topic
+     * @param latencyMs
+     * @param targetLatencyMs
+     */
+    default void reportLatency(String topic, long latencyMs, long targetLatencyMs) {
+        reportCapacity(topic, latencyMs <= targetLatencyMs ? 1 : targetLatencyMs / (double) latencyMs);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.common.util.Murmur3_32Hash;
+
+import java.util.List;
+
+/**
+ * Classifies messages by the hash range their ordering key, or otherwise their key, falls into. Every configured
+ * range is a class of its own, followed by the default class.
+ */
+public class KeyHashMessageClassifier implements MessageClassifier {
+    private final int[] rangeStarts;
+    private final int[] rangeEnds;
+    private final int[] weights;
+
+    public KeyHashMessageClassifier(MessageClassSpec spec) {
+        List<int[]> ranges = spec.getKeyHashRanges();
+        this.rangeStarts = new int[ranges.size()];
+        this.rangeEnds = new int[ranges.size()];
+        this.weights = new int[ranges.size() + 1];
+        for (int i = 0; i < ranges.size(); i++) {
+            rangeStarts[i] = ranges.get(i)[0];
+            rangeEnds[i] = ranges.get(i)[1];
+            weights[i] = ranges.get(i)[2];
+        }
+        weights[ranges.size()] = spec.getDefaultWeight();
+    }
+
+    @Override
+    public int getClassCount() {
+        return weights.length;
+    }
+
+    @Override
+    public int getClassWeight(int messageClass) {
+        return weights[messageClass];
+    }
+
+    @Override
+    public int classify(Message<?> message) {
+        byte[] key = message.hasOrderingKey() ? message.getOrderingKey()
+                : message.hasKey() ? message.getKeyBytes() : null;
+        if (key == null) {
+            return weights.length - 1;
+        }
+        int hash = (Murmur3_32Hash.getInstance().makeHash(key) & Integer.MAX_VALUE) % MessageClassSpec.KEY_HASH_RANGE_SIZE;
+        for (int i = 0; i < rangeStarts.length; i++) {
+            if (hash >= rangeStarts[i] && hash <= rangeEnds[i]) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl.weight;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Per thread local queues of messages already taken off the shared queue in batches. Messages taken off the shared
+ * queue are staged by topic and dealt to the receiving thread in batches made up by weighted quotas, using deficit
+ * round robin: every staged topic is credited a share of the batch in proportion to its weight, so topics with low
+ * weights get their turn too, and room left once every topic had its share goes to the topics in turn.
+ * A receiving thread serves itself from its own queue and, once it runs dry, steals half of the queue of another
+ * thread, so receive calls mostly touch thread local structures and the shared queue is contended once per batch
+ * instead of once per message. Messages handed out are collected per thread, to be settled in bulk with
+ * {@link #settle()}. Queues of threads which have stopped receiving are left to be stolen from, or taken from by
+ * receive paths which do not keep local queues, see {@link #take()}.
+ */
+public class LocalReceiveQueues<M> {
+    private final List<LocalQueue<M>> queues = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<LocalQueue<M>> localQueue = ThreadLocal.withInitial(() -> {
+        LocalQueue<M> queue = new LocalQueue<>();
+        queues.add(queue);
+        return queue;
+    });
+    private final int batchSize;
+    private final Function<M, String> topicOf;
+    private final ToIntFunction<String> weightOf;
+    // staged topics, guarded by the lock of this instance
+    private final Map<String, StagedTopic<M>> stagedByTopic = new HashMap<>();
+    private final List<StagedTopic<M>> stagedTopics = new ArrayList<>();
+    private int stagedCount = 0;
+    private int nextTopic = 0;
+
+    /**
+     * @param batchSize
+     * @param topicOf topic of a message
+     * @param weightOf weight of a topic
+     */
+    public LocalReceiveQueues(int batchSize, Function<M, String> topicOf, ToIntFunction<String> weightOf) {
+        this.batchSize = batchSize;
+        this.topicOf = topicOf;
+        this.weightOf = weightOf;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Hands out the next message of the queue of the calling thread, or returns null if it is empty
+     */
+    public M poll() {
+        LocalQueue<M> queue = localQueue.get();
+        synchronized (queue) {
+            M message = queue.messages.pollFirst();
+            if (message != null) {
+                queue.handedOut.add(message);
+            }
+            return message;
+        }
+    }
+
+    /**
+     * Stages messages taken off the shared queue, deals a batch to the queue of the calling thread and hands out the
+     * first message of it, or returns null if no message is staged
+     *
+     * @param messages
+     */
+    public M refill(List<M> messages) {
+        List<M> batch;
+        synchronized (this) {
+            for (M message : messages) {
+                String topic = topicOf.apply(message);
+                StagedTopic<M> stagedTopic = stagedByTopic.get(topic);
+                if (stagedTopic == null) {
+                    stagedTopic = new StagedTopic<>(topic);
+                    stagedByTopic.put(topic, stagedTopic);
+                    stagedTopics.add(stagedTopic);
+                }
+                stagedTopic.messages.addLast(message);
+            }
+            stagedCount += messages.size();
+            batch = deal(batchSize);
+        }
+        if (batch.isEmpty()) {
+            return null;
+        }
+        LocalQueue<M> queue = localQueue.get();
+        synchronized (queue) {
+            for (int i = 1; i < batch.size(); i++) {
+                queue.messages.addLast(batch.get(i));
+            }
+            queue.handedOut.add(batch.get(0));
+        }
+        return batch.get(0);
+    }
+
+    /**
+     * Moves half of the messages of the first non-empty queue of another thread, starting at a random one, to the
+     * queue of the calling thread and hands out the first of them, or returns null if all queues are empty
+     */
+    public M steal() {
+        LocalQueue<M> ownQueue = localQueue.get();
+        int count = queues.size();
+        int start = ThreadLocalRandom.current().nextInt(count);
+        for (int i = 0; i < count; i++) {
+            LocalQueue<M> victim = queues.get((start + i) % count);
+            if (victim == ownQueue) {
+                continue;
+            }
+            List<M> stolen;
+            synchronized (victim) {
+                int toSteal = (victim.messages.size() + 1) / 2;
+                if (toSteal == 0) {
+                    continue;
+                }
+                // steal from the tail while the owner keeps consuming from the head
+                stolen = new ArrayList<>(toSteal);
+                for (int j = 0; j < toSteal; j++) {
+                    stolen.add(victim.messages.pollLast());
+                }
+            }
+            M message = stolen.get(stolen.size() - 1);
+            synchronized (ownQueue) {
+                // stolen in reverse order, the earliest one is handed out and the rest keep their order
+                for (int j = 0; j < stolen.size() - 1; j++) {
+                    ownQueue.messages.addFirst(stolen.get(j));
+                }
+                ownQueue.handedOut.add(message);
+            }
+            return message;
+        }
+        return null;
+    }
+
+    /**
+     * Takes a message out of any local queue, or of the staged ones, without handing it out, or returns null if there
+     * is none. For receive paths which do not keep local queues of their own, the caller accounts for the message.
+     */
+    public M take() {
+        int count = queues.size();
+        int start = count == 0 ? 0 : ThreadLocalRandom.current().nextInt(count);
+        for (int i = 0; i < count; i++) {
+            LocalQueue<M> queue = queues.get((start + i) % count);
+            synchronized (queue) {
+                M message = queue.messages.pollFirst();
+                if (message != null) {
+                    return message;
+                }
+            }
+        }
+        synchronized (this) {
+            List<M> dealt = deal(1);
+            return dealt.isEmpty() ? null : dealt.get(0);
+        }
+    }
+
+    /**
+     * Returns a message obtained from {@link #take()} which the caller could not use, it is taken again first
+     */
+    public synchronized void putBack(M message) {
+        String topic = topicOf.apply(message);
+        StagedTopic<M> stagedTopic = stagedByTopic.get(topic);
+        if (stagedTopic == null) {
+            stagedTopic = new StagedTopic<>(topic);
+            stagedByTopic.put(topic, stagedTopic);
+            stagedTopics.add(stagedTopic);
+        }
+        stagedTopic.messages.addFirst(message);
+        stagedCount++;
+    }
+
+    /**
+     * Returns the messages handed out by all threads since the last call
+     */
+    public List<M> settle() {
+        List<M> handedOut = new ArrayList<>();
+        for (LocalQueue<M> queue : queues) {
+            synchronized (queue) {
+                if (!queue.handedOut.isEmpty()) {
+                    handedOut.addAll(queue.handedOut);
+                    queue.handedOut.clear();
+                }
+            }
+        }
+        return handedOut;
+    }
+
+    /**
+     * Drops the messages of all queues and the staged ones, and returns them. Messages handed out are left to
+     * {@link #settle()}.
+     */
+    public List<M> clear() {
+        List<M> cleared = new ArrayList<>();
+        for (LocalQueue<M> queue : queues) {
+            synchronized (queue) {
+                cleared.addAll(queue.messages);
+                queue.messages.clear();
+            }
+        }
+        synchronized (this) {
+            for (StagedTopic<M> stagedTopic : stagedTopics) {
+                cleared.addAll(stagedTopic.messages);
+                stagedTopic.messages.clear();
+                stagedTopic.deficit = 0;
+            }
+            stagedCount = 0;
+        }
+        return cleared;
+    }
+
+    /**
+     * Messages in local queues and staged, not counting the ones handed out
+     */
+    public int size() {
+        int size = 0;
+        for (LocalQueue<M> queue : queues) {
+            synchronized (queue) {
+                size += queue.messages.size();
+            }
+        }
+        synchronized (this) {
+            return size + stagedCount;
+        }
+    }
+
+    // deficit round robin over the staged topics, starting one topic further on every deal so that no topic always
+    // comes last once the batch is full, must be invoked holding the lock of this instance
+    private List<M> deal(int maxMessages) {
+        List<M> batch = new ArrayList<>(Math.min(maxMessages, stagedCount));
+        if (stagedCount == 0) {
+            return batch;
+        }
+        int topics = stagedTopics.size();
+        int[] weights = new int[topics];
+        long totalWeight = 0;
+        for (int i = 0; i < topics; i++) {
+            StagedTopic<M> stagedTopic = stagedTopics.get(i);
+            if (!stagedTopic.messages.isEmpty()) {
+                weights[i] = Math.max(1, weightOf.applyAsInt(stagedTopic.topic));
+                totalWeight += weights[i];
+            }
+        }
+        int start = nextTopic % topics;
+        nextTopic = start + 1;
+        for (int i = 0; i < topics && batch.size() < maxMessages; i++) {
+            int index = (start + i) % topics;
+            StagedTopic<M> stagedTopic = stagedTopics.get(index);
+            if (stagedTopic.messages.isEmpty()) {
+                stagedTopic.deficit = 0;
+                continue;
+            }
+            stagedTopic.deficit = Math.min(maxMessages,
+                    stagedTopic.deficit + (double) maxMessages * weights[index] / totalWeight);
+            int quota = (int) Math.min(stagedTopic.deficit, maxMessages - batch.size());
+            stagedTopic.deficit -= moveTo(stagedTopic, batch, quota);
+            if (stagedTopic.messages.isEmpty()) {
+                stagedTopic.deficit = 0;
+            }
+        }
+        for (int i = 0; i < topics && batch.size() < maxMessages; i++) {
+            StagedTopic<M> stagedTopic = stagedTopics.get((start + i) % topics);
+            moveTo(stagedTopic, batch, maxMessages - batch.size());
+            if (stagedTopic.messages.isEmpty()) {
+                stagedTopic.deficit = 0;
+            }
+        }
+        stagedCount -= batch.size();
+        return batch;
+    }
+
+    private static <M> int moveTo(StagedTopic<M> stagedTopic, List<M> batch, int maxMessages) {
+        int moved = 0;
+        M message;
+        while (moved < maxMessages && (message = stagedTopic.messages.pollFirst()) != null) {
+            batch.add(message);
+            moved++;
+        }
+        return moved;
+    }
+
+    // guarded by its own lock, which only contends when the queue is stolen from or settled
+    private static class LocalQueue<M> {
+        private final ArrayDeque<M> messages = new ArrayDeque<>();
+        private final List<M> handedOut = new ArrayList<>();
+    }
+
+    private static class StagedTopic<M> {
+        private final String topic;
+        private final ArrayDeque<M> messages = new ArrayDeque<>();
+        private double deficit;
+
+        private StagedTopic(String topic) {
+            this.topic = topic;
+        }
+    }
+}
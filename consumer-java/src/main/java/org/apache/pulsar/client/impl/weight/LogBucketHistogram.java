@@ -0,0 +1,122 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed memory histogram of non-negative values in buckets of powers of two: bucket 0 holds zero and bucket i holds
+ * the values in [2^(i-1), 2^i). Recording is a couple of striped counter increments, so it is cheap on the hot path
+ * even when many threads record at once. Percentiles are reported as the upper bound of their bucket, i.e. within a factor
+ * of two.
+ */
+public class LogBucketHistogram {
+    private static final int BUCKETS = 64;
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+
+    public LogBucketHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        counts[bucket(value)].increment();
+        sum.add(Math.max(0, value));
+    }
+
+    public Snapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return new Snapshot(snapshot, sum.sum());
+    }
+
+    private static int bucket(long value) {
+        return value <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Returns the largest value held by the bucket
+     */
+    public static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        private Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long count = 0;
+            for (long bucketCount : counts) {
+                count += bucketCount;
+            }
+            this.count = count;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Sum of the recorded values, may be slightly off the counts as they are read one after the other
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        public int getBuckets() {
+            return counts.length;
+        }
+
+        /**
+         * Values recorded in the bucket, see {@link LogBucketHistogram#upperBound(int)} for its range
+         */
+        public long getCount(int bucket) {
+            return counts[bucket];
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the given percentile, in the range [0, 100], or zero if
+         * nothing has been recorded
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(counts.length - 1);
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " p50=" + getPercentile(50) + " p99=" + getPercentile(99) + " max=" + getPercentile(100);
+        }
+    }
+}
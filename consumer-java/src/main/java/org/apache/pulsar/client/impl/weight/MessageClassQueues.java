@@ -0,0 +1,108 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sub-queues of the message classes of a topic. Messages are released to the shared queue by descending class
+ * weight, as long as the class holds less than its quota of the shared queue: the topic threshold scaled by the
+ * weight of the class relative to the highest class weight, and at least one message so that every class progresses.
+ * Messages released have to be reported back once they leave the shared queue.
+ */
+public class MessageClassQueues<M> {
+    private final MessageClassifier classifier;
+    private final List<ArrayDeque<M>> queues = new ArrayList<>();
+    private final int[] inSharedQueue;
+    private final Integer[] order;
+    private final int maxWeight;
+    private int size = 0;
+
+    public MessageClassQueues(MessageClassifier classifier) {
+        this.classifier = classifier;
+        int classCount = classifier.getClassCount();
+        int maxWeight = 1;
+        for (int i = 0; i < classCount; i++) {
+            queues.add(new ArrayDeque<>());
+            maxWeight = Math.max(maxWeight, classifier.getClassWeight(i));
+        }
+        this.maxWeight = maxWeight;
+        this.inSharedQueue = new int[classCount];
+        this.order = new Integer[classCount];
+        for (int i = 0; i < classCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> classifier.getClassWeight(i)).reversed());
+    }
+
+    public MessageClassifier getClassifier() {
+        return classifier;
+    }
+
+    public synchronized void add(int messageClass, M message) {
+        queues.get(messageClass).add(message);
+        size++;
+    }
+
+    /**
+     * Returns the next message to release to the shared queue, or null if no class with pending messages is within
+     * its quota
+     */
+    public synchronized M poll(int topicThreshold) {
+        if (size == 0) {
+            return null;
+        }
+        for (int messageClass : order) {
+            ArrayDeque<M> queue = queues.get(messageClass);
+            if (!queue.isEmpty() && inSharedQueue[messageClass] < getQuota(messageClass, topicThreshold)) {
+                inSharedQueue[messageClass]++;
+                size--;
+                return queue.poll();
+            }
+        }
+        return null;
+    }
+
+    public synchronized void onRemovedFromSharedQueue(int messageClass) {
+        if (inSharedQueue[messageClass] > 0) {
+            inSharedQueue[messageClass]--;
+        }
+    }
+
+    /**
+     * Drops all pending messages and returns their count. Messages in the shared queue are expected to be cleared
+     * along with it.
+     */
+    public synchronized int clear() {
+        int cleared = size;
+        queues.forEach(ArrayDeque::clear);
+        Arrays.fill(inSharedQueue, 0);
+        size = 0;
+        return cleared;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int getQuota(int messageClass, int topicThreshold) {
+        return Math.max(1, (int) ((long) topicThreshold * classifier.getClassWeight(messageClass) / maxWeight));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.shade.com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message classes of a topic, derived either from the value of a message property or from the hash range the key
+ * of a message falls into. Key hashes are computed the same way as for Key_Shared subscriptions, in the range
+ * [0, 65535]. Messages matching none of the classes, including messages without the property or key, fall into the
+ * default class.
+ */
+public class MessageClassSpec {
+    public static final int KEY_HASH_RANGE_SIZE = 65536;
+    private static final String PROPERTY_TYPE = "property";
+    private static final String KEY_HASH_TYPE = "keyhash";
+
+    private final String property;
+    private final int defaultWeight;
+    private final Map<String, Integer> valueWeights = new LinkedHashMap<>();
+    private final List<int[]> keyHashRanges = new ArrayList<>();
+
+    private MessageClassSpec(String property, int defaultWeight) {
+        this.property = property;
+        this.defaultWeight = defaultWeight;
+    }
+
+    /**
+     * Classes by the value of the given message property
+     */
+    public static MessageClassSpec property(String property, int defaultWeight) {
+        Preconditions.checkArgument(property != null && !property.isEmpty(), "property name required");
+        return new MessageClassSpec(property, defaultWeight);
+    }
+
+    /**
+     * Classes by the hash range of the message key
+     */
+    public static MessageClassSpec keyHash(int defaultWeight) {
+        return new MessageClassSpec(null, defaultWeight);
+    }
+
+    public MessageClassSpec value(String value, int weight) {
+        Preconditions.checkState(isPropertyBased(), "values apply to property based classes only");
+        Preconditions.checkArgument(value != null && !value.contains("|"), "property values should not contain '|'");
+        valueWeights.put(value, weight);
+        return this;
+    }
+
+    public MessageClassSpec keyHashRange(int start, int end, int weight) {
+        Preconditions.checkState(!isPropertyBased(), "key hash ranges apply to key hash based classes only");
+        keyHashRanges.add(new int[]{start, end, weight});
+        return this;
+    }
+
+    public boolean isPropertyBased() {
+        return property != null;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    public Map<String, Integer> getValueWeights() {
+        return Collections.unmodifiableMap(valueWeights);
+    }
+
+    /**
+     * Returns the key hash ranges as {start, end, weight} triplets
+     */
+    public List<int[]> getKeyHashRanges() {
+        return Collections.unmodifiableList(keyHashRanges);
+    }
+
+    public MessageClassifier newClassifier() {
+        return isPropertyBased() ? new PropertyMessageClassifier(this) : new KeyHashMessageClassifier(this);
+    }
+
+    public void validate(int maxWeightAllowed) {
+        checkWeight(defaultWeight, maxWeightAllowed);
+        valueWeights.values().forEach(weight -> checkWeight(weight, maxWeightAllowed));
+        List<int[]> ranges = new ArrayList<>(keyHashRanges);
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+        for (int i = 0; i < ranges.size(); i++) {
+            int[] range = ranges.get(i);
+            Preconditions.checkArgument(range[0] >= 0 && range[0] <= range[1] && range[1] < KEY_HASH_RANGE_SIZE,
+                    "key hash range should be within [0,%s], found [%s,%s]", KEY_HASH_RANGE_SIZE - 1, range[0], range[1]);
+            Preconditions.checkArgument(i == 0 || ranges.get(i - 1)[1] < range[0],
+                    "key hash ranges should not overlap, found [%s,%s]", range[0], range[1]);
+            checkWeight(range[2], maxWeightAllowed);
+        }
+    }
+
+    private static void checkWeight(int weight, int maxWeightAllowed) {
+        Preconditions.checkArgument(weight >= 1 && weight <= maxWeightAllowed,
+                "class weights should be in the range [1,maxWeightAllowed(%s)], found %s", maxWeightAllowed, weight);
+    }
+
+    // format used to pass the classes as a consumer property, refer to WeightedConsumerConfiguration#populateBuilder
+    // property|<name>|<default weight>|<value>=<weight>|... or keyhash|<default weight>|<start>-<end>=<weight>|...
+    public static MessageClassSpec parse(String value) {
+        String[] parts = value.split("\\|");
+        Preconditions.checkArgument(parts.length >= 2, "invalid message classes %s", value);
+        MessageClassSpec spec;
+        int next;
+        if (PROPERTY_TYPE.equals(parts[0])) {
+            Preconditions.checkArgument(parts.length >= 3, "invalid message classes %s", value);
+            spec = property(parts[1], Integer.parseInt(parts[2]));
+            next = 3;
+        } else {
+            Preconditions.checkArgument(KEY_HASH_TYPE.equals(parts[0]), "invalid message classes %s", value);
+            spec = keyHash(Integer.parseInt(parts[1]));
+            next = 2;
+        }
+        for (int i = next; i < parts.length; i++) {
+            int separator = parts[i].lastIndexOf('=');
+            Preconditions.checkArgument(separator > 0, "invalid message class %s", parts[i]);
+            int weight = Integer.parseInt(parts[i].substring(separator + 1));
+            if (spec.isPropertyBased()) {
+                spec.value(parts[i].substring(0, separator), weight);
+            } else {
+                String[] range = parts[i].substring(0, separator).split("-");
+                Preconditions.checkArgument(range.length == 2, "invalid key hash range %s", parts[i]);
+                spec.keyHashRange(Integer.parseInt(range[0]), Integer.parseInt(range[1]), weight);
+            }
+        }
+        return spec;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        if (isPropertyBased()) {
+            str.append(PROPERTY_TYPE).append('|').append(property).append('|').append(defaultWeight);
+            valueWeights.forEach((value, weight) -> str.append('|').append(value).append('=').append(weight));
+        } else {
+            str.append(KEY_HASH_TYPE).append('|').append(defaultWeight);
+            keyHashRanges.forEach(range -> str.append('|').append(range[0]).append('-').append(range[1]).append('=').append(range[2]));
+        }
+        return str.toString();
+    }
+}
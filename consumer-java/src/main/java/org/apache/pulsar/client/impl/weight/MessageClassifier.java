@@ -0,0 +1,34 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.client.api.Message;
+
+/**
+ * Splits the messages of a topic into weighted classes, which are dispatched from sub-queues of their own so that
+ * lower weighted classes hold a smaller share of the topic threshold in the shared queue.
+ * Classification must be deterministic as a message is classified again once it leaves the shared queue.
+ */
+public interface MessageClassifier {
+    int getClassCount();
+
+    int getClassWeight(int messageClass);
+
+    /**
+     * Returns the class of the message in the range [0, class count), or -1 if the message is not classified
+     */
+    int classify(Message<?> message);
+}
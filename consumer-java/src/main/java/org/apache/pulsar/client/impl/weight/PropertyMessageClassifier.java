@@ -0,0 +1,58 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.client.api.Message;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Classifies messages by the value of a message property. Every configured value is a class of its own, followed by
+ * the default class.
+ */
+public class PropertyMessageClassifier implements MessageClassifier {
+    private final String property;
+    private final Map<String, Integer> valueClasses = new HashMap<>();
+    private final int[] weights;
+
+    public PropertyMessageClassifier(MessageClassSpec spec) {
+        this.property = spec.getProperty();
+        this.weights = new int[spec.getValueWeights().size() + 1];
+        spec.getValueWeights().forEach((value, weight) -> {
+            weights[valueClasses.size()] = weight;
+            valueClasses.put(value, valueClasses.size());
+        });
+        weights[weights.length - 1] = spec.getDefaultWeight();
+    }
+
+    @Override
+    public int getClassCount() {
+        return weights.length;
+    }
+
+    @Override
+    public int getClassWeight(int messageClass) {
+        return weights[messageClass];
+    }
+
+    @Override
+    public int classify(Message<?> message) {
+        String value = message.getProperty(property);
+        Integer messageClass = value == null ? null : valueClasses.get(value);
+        return messageClass == null ? weights.length - 1 : messageClass;
+    }
+}
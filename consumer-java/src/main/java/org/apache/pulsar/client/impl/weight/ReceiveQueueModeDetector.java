@@ -0,0 +1,86 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects whether the consumer is tailing or lagging, to switch between unthrottled and throttled receiver queues.
+ * Samples are aggregated over a window: the fraction of samples where every topic had messages in the shared queue
+ * and the average saturation of the receiver queues of internal consumers. A lagging regime is detected when both are
+ * at least the enter ratio, and a tailing regime when either drops below the exit ratio. The gap between the ratios
+ * provides the hysteresis which prevents flapping between modes.
+ */
+public class ReceiveQueueModeDetector {
+    private static final Logger log = LoggerFactory.getLogger(ReceiveQueueModeDetector.class);
+    private final int windowSamples;
+    private final double enterRatio;
+    private final double exitRatio;
+    private final AtomicLong switchCount = new AtomicLong();
+    private volatile boolean throttled;
+    private int samples = 0;
+    private int allQueuedSamples = 0;
+    private double saturationSum = 0;
+
+    public ReceiveQueueModeDetector(boolean throttled, int windowSamples, double enterRatio, double exitRatio) {
+        this.throttled = throttled;
+        this.windowSamples = Math.max(1, windowSamples);
+        this.enterRatio = enterRatio;
+        this.exitRatio = exitRatio;
+    }
+
+    /**
+     * Records a sample and returns true if the mode got switched at the end of the window
+     */
+    public synchronized boolean sample(boolean allTopicsQueued, double saturation) {
+        samples++;
+        if (allTopicsQueued) {
+            allQueuedSamples++;
+        }
+        saturationSum += saturation;
+        if (samples < windowSamples) {
+            return false;
+        }
+
+        double queuedFraction = allQueuedSamples / (double) samples;
+        double averageSaturation = saturationSum / samples;
+        samples = 0;
+        allQueuedSamples = 0;
+        saturationSum = 0;
+
+        boolean switchMode = throttled
+                ? queuedFraction < exitRatio || averageSaturation < exitRatio
+                : queuedFraction >= enterRatio && averageSaturation >= enterRatio;
+        if (switchMode) {
+            throttled = !throttled;
+            switchCount.incrementAndGet();
+            log.info("Switched receive queue to throttled={} with all topics queued for {} of the window and receiver queue saturation={}",
+                    throttled, queuedFraction, averageSaturation);
+        }
+        return switchMode;
+    }
+
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    public long getSwitchCount() {
+        return switchCount.get();
+    }
+}
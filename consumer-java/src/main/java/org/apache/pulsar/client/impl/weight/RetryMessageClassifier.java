@@ -0,0 +1,61 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.util.RetryMessageUtil;
+
+/**
+ * Classifies messages of the retry topic by the number of times they have been reconsumed, in buckets of powers of
+ * two: the first retry falls into the first bucket, the second and third into the next one and so on, with the last
+ * bucket taking all the remaining. The weight halves with every bucket, so first retries are dispatched on the full
+ * weight of the retry topic while chronic failures sink to the background.
+ */
+public class RetryMessageClassifier implements MessageClassifier {
+    private final int buckets;
+
+    public RetryMessageClassifier(int buckets) {
+        this.buckets = buckets;
+    }
+
+    @Override
+    public int getClassCount() {
+        return buckets;
+    }
+
+    @Override
+    public int getClassWeight(int messageClass) {
+        return 1 << (buckets - 1 - messageClass);
+    }
+
+    @Override
+    public int classify(Message<?> message) {
+        String reconsumeTimes = message.getProperty(RetryMessageUtil.SYSTEM_PROPERTY_RECONSUMETIMES);
+        if (reconsumeTimes == null) {
+            return 0;
+        }
+        int times;
+        try {
+            times = Integer.parseInt(reconsumeTimes);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+        if (times <= 1) {
+            return 0;
+        }
+        return Math.min(buckets - 1, 31 - Integer.numberOfLeadingZeros(times));
+    }
+}
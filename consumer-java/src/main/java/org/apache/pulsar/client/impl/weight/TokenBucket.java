@@ -0,0 +1,64 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket holding up to one second worth of tokens. Tokens are taken after the fact, so the bucket can go into
+ * debt and the returned nanos are the time it takes to pay the debt back.
+ */
+class TokenBucket {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private double ratePerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(double ratePerSecond, long nowNanos) {
+        this.ratePerSecond = ratePerSecond;
+        this.tokens = ratePerSecond;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    synchronized void setRate(double ratePerSecond, long nowNanos) {
+        refill(nowNanos);
+        this.ratePerSecond = ratePerSecond;
+        this.tokens = Math.min(tokens, ratePerSecond);
+    }
+
+    synchronized double getRate() {
+        return ratePerSecond;
+    }
+
+    // returns the nanos required to pay back the debt, zero if there is none
+    synchronized long acquire(long permits, long nowNanos) {
+        refill(nowNanos);
+        tokens -= permits;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens * NANOS_PER_SECOND / ratePerSecond);
+    }
+
+    private void refill(long nowNanos) {
+        long elapsedNanos = nowNanos - lastRefillNanos;
+        if (elapsedNanos > 0) {
+            tokens = Math.min(ratePerSecond, tokens + elapsedNanos * ratePerSecond / NANOS_PER_SECOND);
+            lastRefillNanos = nowNanos;
+        }
+    }
+
+    static long toDelayMs(long delayNanos) {
+        return delayNanos > 0 ? Math.max(1, TimeUnit.NANOSECONDS.toMillis(delayNanos)) : 0;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.apache.pulsar.common.naming.TopicName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates the lag of every partition by comparing the last message received from the partition consumer against
+ * the last message id available in the broker. Lag is judged only once something has been received and the broker
+ * has messages past it, as the last message id of a partition whose messages were all acknowledged before the
+ * consumer started does not tell a backlog. The time lag is how long a backlog has been seen without the consumer
+ * reaching the last message the broker had when it was first seen, rather than the age of the last received message,
+ * which would make topics receiving a message after a quiet period look lagging. Topics with any partition lagging
+ * beyond the configured time or entry bound are boosted: their threshold is raised by the boost factor, capped at the configured max threshold.
+ * Nominal weights are never modified.
+ */
+public class TopicLagTracker {
+    private static final Logger log = LoggerFactory.getLogger(TopicLagTracker.class);
+    private final long lagTimeBoundMs;
+    private final long lagEntriesBound;
+    private final int boostFactor;
+    private final int maxThreshold;
+    private final Map<String, LastReceived> lastReceived = new ConcurrentHashMap<>();
+    private volatile Set<String> boostedTopics = Collections.emptySet();
+
+    public TopicLagTracker(WeightedConsumerConfiguration conf) {
+        this.lagTimeBoundMs = conf.getCatchUpLagTimeMs();
+        this.lagEntriesBound = conf.getCatchUpLagEntries();
+        this.boostFactor = conf.getCatchUpBoostFactor();
+        this.maxThreshold = conf.getCatchUpMaxThreshold() > 0 ? conf.getCatchUpMaxThreshold() : conf.getMaxBound();
+    }
+
+    public void onMessageReceived(String topicPartition, MessageId messageId) {
+        if (!(messageId instanceof MessageIdImpl)) {
+            return;
+        }
+        MessageIdImpl messageIdImpl = (MessageIdImpl) messageId;
+        LastReceived last = lastReceived.get(topicPartition);
+        if (last == null) {
+            last = lastReceived.computeIfAbsent(topicPartition, k -> new LastReceived());
+        }
+        last.update(messageIdImpl.getLedgerId(), messageIdImpl.getEntryId());
+    }
+
+    /**
+     * Returns true if the partition has backlog which breaches either the time or the entries bound
+     */
+    public boolean isLagging(String topicPartition, MessageId lastMessageIdInBroker, long nowMs) {
+        if (!(lastMessageIdInBroker instanceof MessageIdImpl)) {
+            return false;
+        }
+        MessageIdImpl lastInBroker = (MessageIdImpl) lastMessageIdInBroker;
+        if (lastInBroker.getEntryId() < 0) {
+            //empty topic
+            return false;
+        }
+        LastReceived last = lastReceived.get(topicPartition);
+        if (last == null) {
+            //nothing received so far, the last message may have been acknowledged already
+            return false;
+        }
+        synchronized (last) {
+            if (!last.isBefore(lastInBroker.getLedgerId(), lastInBroker.getEntryId())) {
+                last.backlogSinceMs = -1;
+                return false;
+            }
+            if (last.backlogSinceMs < 0 || !last.isBefore(last.backlogLedgerId, last.backlogEntryId)) {
+                //the backlog seen earlier has been received, the time lag runs from the one seen now
+                last.backlogLedgerId = lastInBroker.getLedgerId();
+                last.backlogEntryId = lastInBroker.getEntryId();
+                last.backlogSinceMs = nowMs;
+            }
+            if (lagTimeBoundMs > 0 && nowMs - last.backlogSinceMs > lagTimeBoundMs) {
+                return true;
+            }
+            if (lagEntriesBound > 0) {
+                //entries across ledgers cannot be counted, treated as a breach of the bound
+                return lastInBroker.getLedgerId() != last.ledgerId
+                        || lastInBroker.getEntryId() - last.entryId > lagEntriesBound;
+            }
+            return false;
+        }
+    }
+
+    public void setBoostedTopics(Set<String> topics) {
+        Set<String> previous = boostedTopics;
+        if (!previous.equals(topics)) {
+            log.info("Catch up boost applied to topics={}, previously={}", topics, previous);
+        }
+        boostedTopics = Collections.unmodifiableSet(new HashSet<>(topics));
+    }
+
+    public boolean isBoosted(String topic) {
+        return boostedTopics.contains(topic);
+    }
+
+    public int getThreshold(String topic, int nominalThreshold) {
+        if (!boostedTopics.contains(topic)) {
+            return nominalThreshold;
+        }
+        return Math.max(nominalThreshold, Math.min(maxThreshold, nominalThreshold * boostFactor));
+    }
+
+    public void removeTopic(String topic) {
+        String partitionedTopic = TopicName.get(topic).getPartitionedTopicName();
+        lastReceived.keySet().removeIf(topicPartition ->
+                TopicName.get(topicPartition).getPartitionedTopicName().equals(partitionedTopic));
+    }
+
+    private static class LastReceived {
+        private long ledgerId = -1;
+        private long entryId = -1;
+        // last message in the broker when the current backlog was first seen, and when it was
+        private long backlogLedgerId = -1;
+        private long backlogEntryId = -1;
+        private long backlogSinceMs = -1;
+
+        synchronized void update(long ledgerId, long entryId) {
+            this.ledgerId = ledgerId;
+            this.entryId = entryId;
+        }
+
+        boolean isBefore(long ledgerId, long entryId) {
+            return this.ledgerId < ledgerId || (this.ledgerId == ledgerId && this.entryId < entryId);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.shade.com.google.common.base.Preconditions;
+
+/**
+ * Absolute consumption limits of a topic. A non-positive value disables the respective limit.
+ */
+public class TopicRateLimit {
+    private final long maxMessagesPerSecond;
+    private final long maxBytesPerSecond;
+
+    public TopicRateLimit(long maxMessagesPerSecond, long maxBytesPerSecond) {
+        this.maxMessagesPerSecond = maxMessagesPerSecond;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    public long getMaxMessagesPerSecond() {
+        return maxMessagesPerSecond;
+    }
+
+    public long getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
+    // format used to pass the limit as a consumer property, refer to WeightedConsumerConfiguration#populateBuilder
+    public static TopicRateLimit parse(String value) {
+        String[] parts = value.split(",");
+        Preconditions.checkArgument(parts.length == 2, "rate limit should be of the form <msgs/s>,<bytes/s>, found %s", value);
+        return new TopicRateLimit(Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim()));
+    }
+
+    @Override
+    public String toString() {
+        return maxMessagesPerSecond + "," + maxBytesPerSecond;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.common.naming.TopicName;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Per topic token buckets enforcing the absolute rate limits of {@link WeightedConsumerConfiguration#getTopicRateLimits()}.
+ * Messages are accounted after they have been received, so a bucket can go into debt. The returned delay is the time
+ * it takes for the bucket to pay back the debt, during which partitions of the topic should not be consumed from.
+ * Buckets hold up to one second worth of tokens, and limits apply to the topic as a whole across its partitions.
+ */
+public class TopicRateLimiter {
+    private final Map<String, TokenBucket[]> buckets = new HashMap<>();
+    private final LongSupplier nanoClock;
+
+    public TopicRateLimiter(Map<String, TopicRateLimit> rateLimits) {
+        this(rateLimits, System::nanoTime);
+    }
+
+    /**
+     * @param rateLimits
+     * @param nanoClock source of {@link System#nanoTime()} like timestamps
+     */
+    public TopicRateLimiter(Map<String, TopicRateLimit> rateLimits, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        long now = nanoClock.getAsLong();
+        rateLimits.forEach((topic, rateLimit) -> buckets.put(TopicName.get(topic).getPartitionedTopicName(), new TokenBucket[]{
+                rateLimit.getMaxMessagesPerSecond() > 0 ? new TokenBucket(rateLimit.getMaxMessagesPerSecond(), now) : null,
+                rateLimit.getMaxBytesPerSecond() > 0 ? new TokenBucket(rateLimit.getMaxBytesPerSecond(), now) : null
+        }));
+    }
+
+    public boolean isLimited(String topic) {
+        return buckets.containsKey(topic);
+    }
+
+    /**
+     * Accounts a received message and returns the delay in millis before the topic can be consumed again, zero if
+     * the topic is within its limits
+     */
+    public long acquire(String topic, int messageSize) {
+        TokenBucket[] topicBuckets = buckets.get(topic);
+        if (topicBuckets == null) {
+            return 0;
+        }
+        long now = nanoClock.getAsLong();
+        long delayNanos = 0;
+        if (topicBuckets[0] != null) {
+            delayNanos = topicBuckets[0].acquire(1, now);
+        }
+        if (topicBuckets[1] != null) {
+            delayNanos = Math.max(delayNanos, topicBuckets[1].acquire(messageSize, now));
+        }
+        return TokenBucket.toDelayMs(delayNanos);
+    }
+
+    /**
+     * Returns the delay in millis before the topic can be consumed again without accounting any message
+     */
+    public long getDelayMs(String topic) {
+        TokenBucket[] topicBuckets = buckets.get(topic);
+        if (topicBuckets == null) {
+            return 0;
+        }
+        long now = nanoClock.getAsLong();
+        long delayNanos = 0;
+        for (TokenBucket bucket : topicBuckets) {
+            if (bucket != null) {
+                delayNanos = Math.max(delayNanos, bucket.acquire(0, now));
+            }
+        }
+        return TokenBucket.toDelayMs(delayNanos);
+    }
+}
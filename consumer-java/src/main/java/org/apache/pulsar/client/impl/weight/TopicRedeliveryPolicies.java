@@ -0,0 +1,110 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.common.naming.TopicName;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the redelivery policy of every topic. Policies configured explicitly take precedence. Otherwise, when
+ * {@link WeightedConsumerConfiguration#isWeightScaledRedelivery()} is set, the consumer wide ack timeout and negative
+ * ack delay are scaled by the ratio of the highest topic weight to the weight of the topic, so the highest weighted
+ * topics are redelivered on the consumer wide schedule and a topic with half the weight waits twice as long, up to
+ * {@link WeightedConsumerConfiguration#getWeightScaledRedeliveryMaxFactor()} times as long.
+ * Topics are keyed by their partitioned topic name.
+ */
+public class TopicRedeliveryPolicies {
+    private final Map<String, TopicRedeliveryPolicy> policies = new HashMap<>();
+    private final Map<String, TopicRedeliveryPolicy> scaledPolicies = new ConcurrentHashMap<>();
+    private final TopicThresholdDistribution topicThresholdDistribution;
+    private final boolean weightScaled;
+    private final long ackTimeoutMs;
+    private final long negativeAckDelayMs;
+    private final int maxWeight;
+    private final int maxFactor;
+
+    public TopicRedeliveryPolicies(WeightedConsumerConfiguration weightConf,
+                                   TopicThresholdDistribution topicThresholdDistribution,
+                                   long ackTimeoutMs, long negativeAckDelayMicros) {
+        weightConf.getTopicRedeliveryPolicies().forEach((topic, policy) ->
+                policies.put(TopicName.get(topic).getPartitionedTopicName(), policy));
+        this.topicThresholdDistribution = topicThresholdDistribution;
+        this.weightScaled = weightConf.isWeightScaledRedelivery();
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.negativeAckDelayMs = TimeUnit.MICROSECONDS.toMillis(negativeAckDelayMicros);
+        int maxWeight = 1;
+        for (Integer weight : weightConf.getTopicWeights().values()) {
+            if (weight != null) {
+                maxWeight = Math.max(maxWeight, weight);
+            }
+        }
+        this.maxWeight = maxWeight;
+        this.maxFactor = weightConf.getWeightScaledRedeliveryMaxFactor();
+    }
+
+    public boolean isEnabled() {
+        return weightScaled || !policies.isEmpty();
+    }
+
+    /**
+     * Returns the policy of the topic, or null if the consumer wide settings apply
+     */
+    public TopicRedeliveryPolicy getPolicy(String topic) {
+        TopicRedeliveryPolicy policy = policies.get(topic);
+        if (policy != null || !weightScaled) {
+            return policy;
+        }
+        return scaledPolicies.computeIfAbsent(topic, key -> {
+            double factor = Math.min(maxFactor,
+                    maxWeight / (double) Math.max(1, Math.min(maxWeight, topicThresholdDistribution.getWeight(key))));
+            long nackDelayMs = Math.round(negativeAckDelayMs * factor);
+            return new TopicRedeliveryPolicy(Math.round(ackTimeoutMs * factor), nackDelayMs, nackDelayMs);
+        });
+    }
+
+    public long getAckTimeoutMs(String topic) {
+        TopicRedeliveryPolicy policy = getPolicy(topic);
+        return policy == null ? ackTimeoutMs : policy.getAckTimeoutMs();
+    }
+
+    /**
+     * Returns the longest ack timeout any topic can have
+     */
+    public long getMaxAckTimeoutMs() {
+        long max = weightScaled ? ackTimeoutMs * Math.min(maxWeight, maxFactor) : ackTimeoutMs;
+        for (TopicRedeliveryPolicy policy : policies.values()) {
+            max = Math.max(max, policy.getAckTimeoutMs());
+        }
+        return max;
+    }
+
+    /**
+     * Returns the shortest non-zero ack timeout any topic can have, zero if ack timeout is disabled for all topics
+     */
+    public long getMinAckTimeoutMs() {
+        long min = ackTimeoutMs;
+        for (TopicRedeliveryPolicy policy : policies.values()) {
+            if (policy.getAckTimeoutMs() > 0) {
+                min = min == 0 ? policy.getAckTimeoutMs() : Math.min(min, policy.getAckTimeoutMs());
+            }
+        }
+        return min;
+    }
+}
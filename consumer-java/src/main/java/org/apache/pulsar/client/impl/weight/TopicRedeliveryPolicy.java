@@ -0,0 +1,69 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.shade.com.google.common.base.Preconditions;
+
+/**
+ * Redelivery schedule of a topic: the ack timeout, and the delay before a negatively acked message is redelivered.
+ * When the max negative ack delay is more than the delay, the delay doubles with every redelivery of the message up
+ * to the max. A zero ack timeout disables ack timeout for the topic, otherwise it should be at least
+ * {@link #MIN_ACK_TIMEOUT_MS}.
+ */
+public class TopicRedeliveryPolicy {
+    // same minimum as the consumer wide ack timeout, refer to ConsumerBuilderImpl#ackTimeout
+    public static final long MIN_ACK_TIMEOUT_MS = 1000;
+
+    private final long ackTimeoutMs;
+    private final long negativeAckDelayMs;
+    private final long negativeAckMaxDelayMs;
+
+    public TopicRedeliveryPolicy(long ackTimeoutMs, long negativeAckDelayMs, long negativeAckMaxDelayMs) {
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.negativeAckDelayMs = negativeAckDelayMs;
+        this.negativeAckMaxDelayMs = Math.max(negativeAckDelayMs, negativeAckMaxDelayMs);
+    }
+
+    public long getAckTimeoutMs() {
+        return ackTimeoutMs;
+    }
+
+    public long getNegativeAckDelayMs() {
+        return negativeAckDelayMs;
+    }
+
+    public long getNegativeAckMaxDelayMs() {
+        return negativeAckMaxDelayMs;
+    }
+
+    public boolean hasNegativeAckBackoff() {
+        return negativeAckMaxDelayMs > negativeAckDelayMs;
+    }
+
+    // format used to pass the policy as a consumer property, refer to WeightedConsumerConfiguration#populateBuilder
+    public static TopicRedeliveryPolicy parse(String value) {
+        String[] parts = value.split(",");
+        Preconditions.checkArgument(parts.length == 3,
+                "redelivery policy should be of the form <ack timeout ms>,<nack delay ms>,<nack max delay ms>, found %s", value);
+        return new TopicRedeliveryPolicy(Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim()),
+                Long.parseLong(parts[2].trim()));
+    }
+
+    @Override
+    public String toString() {
+        return ackTimeoutMs + "," + negativeAckDelayMs + "," + negativeAckMaxDelayMs;
+    }
+}
@@ -20,4 +20,14 @@ public interface TopicThresholdDistribution {
     int getMinValue();
     int getMaxValue();
     int getValue(String topic);
+
+    /**
+     * Returns the weight group of the topic, or null if the topic does not belong to any group
+     */
+    String getGroup(String topic);
+
+    /**
+     * Returns the cumulative threshold shared by all topics of the group
+     */
+    int getGroupValue(String group);
 }
@@ -19,16 +19,38 @@ import org.apache.pulsar.common.naming.TopicName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Thresholds are either derived directly from the topic weight, or, for topics that belong to a weight group, derived
+ * in two levels: the group weight determines the threshold of the whole group and topic weights determine the share
+ * of a topic within the group's threshold.
+ */
 public class TopicThresholdDistributionImpl implements TopicThresholdDistribution {
     private static final Logger log = LoggerFactory.getLogger(TopicThresholdDistributionImpl.class);
     private final WeightDistribution distribution;
     private final Map<String, Integer> topicWeights;
+    private final WeightDistribution groupDistribution;
+    private final Map<String, String> topicGroups;
+    private final Map<String, Integer> groupWeights;
+    private final Map<String, Integer> groupTopicWeightSums;
 
     private TopicThresholdDistributionImpl(Map<String, Integer> topicWeights, WeightDistribution distribution) {
+        this(topicWeights, distribution, Collections.emptyMap(), Collections.emptyMap(), null);
+    }
+
+    private TopicThresholdDistributionImpl(Map<String, Integer> topicWeights, WeightDistribution distribution,
+                                           Map<String, String> topicGroups, Map<String, Integer> groupWeights,
+                                           WeightDistribution groupDistribution) {
         this.topicWeights = topicWeights;
         this.distribution = distribution;
+        this.topicGroups = topicGroups;
+        this.groupWeights = groupWeights;
+        this.groupDistribution = groupDistribution;
+        this.groupTopicWeightSums = new HashMap<>();
+        topicGroups.forEach((topic, group) -> groupTopicWeightSums.merge(group, getWeight(topic), Integer::sum));
     }
 
     public int getWeight(String topic) {
@@ -54,29 +76,69 @@ public class TopicThresholdDistributionImpl implements TopicThresholdDistributio
     }
 
     public int getValue(String topic) {
-        int bound = distribution.getValue(getWeight(topic));
+        String group = getGroup(topic);
+        int bound;
+        if (group == null) {
+            bound = distribution.getValue(getWeight(topic));
+        } else {
+            //share of the group threshold in proportion to the weight of the topic within the group
+            bound = Math.max(1, Math.round(getGroupValue(group) * getWeight(topic) / (float) groupTopicWeightSums.get(group)));
+        }
         log.debug("Topic threshold for topic={} is {}", topic, bound);
         return bound;
     }
 
+    public String getGroup(String topic) {
+        if (topicGroups.isEmpty()) {
+            return null;
+        }
+        String group = topicGroups.get(topic);
+        if (group == null) {
+            TopicName topicName = TopicName.get(topic);
+            if (topicName.isPartitioned()) {
+                group = topicGroups.get(topicName.getPartitionedTopicName());
+            }
+        }
+        return group;
+    }
+
+    public int getGroupValue(String group) {
+        Integer weight = groupWeights.get(group);
+        if (weight == null) {
+            log.warn("Weight not found for group={}, default to weight=1", group);
+            weight = 1;
+        }
+        return groupDistribution.getValue(weight);
+    }
+
     public static <T> TopicThresholdDistribution loadFromConf(WeightedConsumerConfiguration conf)
             throws IllegalArgumentException {
         int maxWeight = 1;
         for (Map.Entry<String, Integer> entry : conf.getTopicWeights().entrySet()) {
             maxWeight = Math.max(maxWeight, entry.getValue());
         }
-        WeightDistribution weightDistribution;
+        WeightDistribution weightDistribution = newDistribution(conf, maxWeight);
+
+        if (conf.getTopicGroups().isEmpty()) {
+            return new TopicThresholdDistributionImpl(conf.getTopicWeights(), weightDistribution);
+        }
+
+        int maxGroupWeight = 1;
+        for (Map.Entry<String, Integer> entry : conf.getGroupWeights().entrySet()) {
+            maxGroupWeight = Math.max(maxGroupWeight, entry.getValue());
+        }
+        return new TopicThresholdDistributionImpl(conf.getTopicWeights(), weightDistribution,
+                conf.getTopicGroups(), conf.getGroupWeights(), newDistribution(conf, maxGroupWeight));
+    }
+
+    private static WeightDistribution newDistribution(WeightedConsumerConfiguration conf, int maxWeight) {
         switch (conf.getDistributionStrategy()) {
             case LINEAR:
-                weightDistribution = new LinearWeightDistribution(conf.getMinBound(), conf.getMaxBound(), maxWeight);
-                break;
+                return new LinearWeightDistribution(conf.getMinBound(), conf.getMaxBound(), maxWeight);
             case EXPONENTIAL:
-                weightDistribution = new ExponentialWeightDistribution(conf.getMinBound(), conf.getMaxBound(), maxWeight);
-                break;
+                return new ExponentialWeightDistribution(conf.getMinBound(), conf.getMaxBound(), maxWeight);
             default:
                 throw new IllegalArgumentException("Weight strategy " + conf.getDistributionStrategy() + " is not supported");
         }
-
-        return new TopicThresholdDistributionImpl(conf.getTopicWeights(), weightDistribution);
     }
 }
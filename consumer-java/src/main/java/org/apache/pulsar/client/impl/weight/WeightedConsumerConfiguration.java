@@ -30,6 +30,11 @@ public class WeightedConsumerConfiguration {
     public static String WT_CONF_PREFIX = "WT_";
     //Different prefix for topics to prevent conflict, refer to #populateBuilder for usage
     public static String WT_TOPIC_CONF_PREFIX = "WTP_";
+    public static String WT_TOPIC_GROUP_CONF_PREFIX = "WTG_";
+    public static String WT_GROUP_WEIGHT_CONF_PREFIX = "WTGW_";
+    public static String WT_TOPIC_RATE_LIMIT_CONF_PREFIX = "WTRL_";
+    public static String WT_TOPIC_REDELIVERY_CONF_PREFIX = "WTRD_";
+    public static String WT_TOPIC_CLASSES_CONF_PREFIX = "WTC_";
 
     private DistributionStrategy distributionStrategy = DistributionStrategy.LINEAR;
     private int minBound = 100;
@@ -38,6 +43,37 @@ public class WeightedConsumerConfiguration {
     private boolean throttleReceiveQueue = false;
     private int queueResumeThreshold = 0;
     private int maxWeightAllowed = 100;
+    private Map<String, String> topicGroups = new HashMap<>();
+    private Map<String, Integer> groupWeights = new HashMap<>();
+    private Map<String, TopicRateLimit> topicRateLimits = new HashMap<>();
+    private Map<String, TopicRedeliveryPolicy> topicRedeliveryPolicies = new HashMap<>();
+    private boolean weightScaledRedelivery = false;
+    private int weightScaledRedeliveryMaxFactor = 10;
+    private int retryTopicDecayBuckets = 0;
+    private Map<String, MessageClassSpec> topicMessageClasses = new HashMap<>();
+    private int localReceiveBatchSize = 0;
+    private int catchUpCheckIntervalSeconds = 0;
+    private long catchUpLagTimeMs = 0;
+    private long catchUpLagEntries = 0;
+    private int catchUpBoostFactor = 2;
+    private int catchUpMaxThreshold = 0;
+    private boolean autoThrottleReceiveQueue = false;
+    private int autoThrottleWindowSeconds = 10;
+    private double autoThrottleEnterRatio = 0.9;
+    private double autoThrottleExitRatio = 0.5;
+    private long maxMessagesPerSecond = 0;
+    private long ackCoalesceTimeMs = 0;
+    private int ackCoalesceMaxSize = 1000;
+    private boolean cumulativeAckWatermark = false;
+    private boolean compactUnAckedTracker = false;
+    private boolean weightedStats = false;
+    private boolean dwellTimeStats = false;
+    private boolean endToEndLatencyStats = false;
+    // Not carried in the consumer properties, handed to the consumer on subscribe
+    private WeightedConsumerEventListener eventListener = null;
+    private long eventIntervalMs = 1000;
+    private long saturationMs = 10000;
+    private double shareDriftTolerance = 0.5;
 
     public void setDistributionStrategy(DistributionStrategy distributionStrategy) {
         this.distributionStrategy = distributionStrategy;
@@ -62,6 +98,282 @@ public class WeightedConsumerConfiguration {
         this.topicWeights.put(topic, weight);
     }
 
+    /**
+     * Assigns the topic to a weight group. Thresholds of grouped topics are derived in two levels: the group weight
+     * decides the threshold of the group as a whole and the topic weight decides its share within the group.
+     * A topic is paused only when both its own threshold and the threshold of its group are breached, so the
+     * unused share of idle topics is first redistributed within the group.
+     *
+     * @param topic
+     * @param group
+     */
+    public void addTopicGroup(String topic, String group) {
+        Preconditions.checkNotNull(topic);
+        Preconditions.checkNotNull(group);
+        this.topicGroups.put(topic, group);
+    }
+
+    public void setGroupWeight(String group, int weight) {
+        Preconditions.checkNotNull(group);
+        this.groupWeights.put(group, weight);
+    }
+
+    /**
+     * Caps consumption of the topic in absolute terms, on top of its weight. Partitions of a topic which has exceeded
+     * its rate are paused like the ones which have breached their threshold, and are resumed once the rate allows.
+     * The shared queue keeps draining in the meantime, so spare capacity goes to the other topics.
+     * A non-positive value disables the respective limit.
+     *
+     * @param topic
+     * @param maxMessagesPerSecond
+     * @param maxBytesPerSecond
+     */
+    public void setTopicRateLimit(String topic, long maxMessagesPerSecond, long maxBytesPerSecond) {
+        Preconditions.checkNotNull(topic);
+        this.topicRateLimits.put(topic, new TopicRateLimit(maxMessagesPerSecond, maxBytesPerSecond));
+    }
+
+    /**
+     * Overrides the ack timeout and negative ack delay of the topic. The negative ack delay doubles with every
+     * redelivery of a message up to the max delay, a max delay equal to the delay keeps it fixed. A zero ack timeout
+     * disables ack timeout for the topic, otherwise it should be at least 1 second, as for the consumer wide ack
+     * timeout. Topics without a policy follow {@link #setWeightScaledRedelivery(boolean)}.
+     *
+     * @param topic
+     * @param ackTimeoutMs
+     * @param negativeAckDelayMs
+     * @param negativeAckMaxDelayMs
+     */
+    public void setTopicRedeliveryPolicy(String topic, long ackTimeoutMs, long negativeAckDelayMs, long negativeAckMaxDelayMs) {
+        Preconditions.checkNotNull(topic);
+        this.topicRedeliveryPolicies.put(topic, new TopicRedeliveryPolicy(ackTimeoutMs, negativeAckDelayMs, negativeAckMaxDelayMs));
+    }
+
+    /**
+     * Scales the ack timeout and negative ack delay of every topic by the ratio of the highest topic weight to the
+     * weight of the topic. The highest weighted topics are redelivered on the consumer wide schedule while lower
+     * weighted topics, which would otherwise flood the queue with redeliveries, back off for longer.
+     *
+     * @param weightScaledRedelivery
+     */
+    public void setWeightScaledRedelivery(boolean weightScaledRedelivery) {
+        this.weightScaledRedelivery = weightScaledRedelivery;
+    }
+
+    /**
+     * Caps the factor by which {@link #setWeightScaledRedelivery(boolean)} scales the ack timeout and negative ack delay
+     * of a topic, so that low weighted topics are not held back for hours when weights span a wide range.
+     *
+     * @param weightScaledRedeliveryMaxFactor
+     */
+    public void setWeightScaledRedeliveryMaxFactor(int weightScaledRedeliveryMaxFactor) {
+        this.weightScaledRedeliveryMaxFactor = weightScaledRedeliveryMaxFactor;
+    }
+
+    /**
+     * Splits messages of the retry topic into buckets by the number of times they have been reconsumed, in powers of
+     * two, with the weight halving in every bucket. First retries are then dispatched on the full weight of the retry
+     * topic while chronic failures sink to the background. Zero disables the decay.
+     *
+     * @param retryTopicDecayBuckets
+     */
+    public void setRetryTopicDecayBuckets(int retryTopicDecayBuckets) {
+        this.retryTopicDecayBuckets = retryTopicDecayBuckets;
+    }
+
+    /**
+     * Splits messages of the topic into weighted classes by a message property or key hash range. Every class is held
+     * in a sub-queue of its own and released to the shared queue within its share of the topic threshold, giving
+     * weighted consumption within a single topic.
+     *
+     * @param topic
+     * @param messageClasses
+     */
+    public void setTopicMessageClasses(String topic, MessageClassSpec messageClasses) {
+        Preconditions.checkNotNull(topic);
+        Preconditions.checkNotNull(messageClasses);
+        this.topicMessageClasses.put(topic, messageClasses);
+    }
+
+    /**
+     * Threads calling receive take messages off the shared queue in batches of this size into queues of their own,
+     * and steal from the queues of other threads once both their own and the shared queue are empty. Cuts contention
+     * on the shared queue when many threads receive from one consumer. Applies to synchronous receive only, zero
+     * disables the local queues.
+     *
+     * @param localReceiveBatchSize
+     */
+    public void setLocalReceiveBatchSize(int localReceiveBatchSize) {
+        this.localReceiveBatchSize = localReceiveBatchSize;
+    }
+
+    /**
+     * Consumer wide ceiling on the throughput, divided among the topics in proportion to their weights. Only the
+     * topics which are actively receiving messages take part in the division, so the share of idle topics is
+     * redistributed to the busy ones. Zero disables the cap.
+     *
+     * @param maxMessagesPerSecond
+     */
+    public void setMaxMessagesPerSecond(long maxMessagesPerSecond) {
+        this.maxMessagesPerSecond = maxMessagesPerSecond;
+    }
+
+    /**
+     * Individual acks are buffered per partition for up to this duration and sent as list acks to the partition
+     * consumers, which saves the per ack lookup of the partition consumer. Zero disables coalescing.
+     * Acks with properties or within a transaction are never coalesced.
+     *
+     * @param ackCoalesceTimeMs
+     */
+    public void setAckCoalesceTimeMs(long ackCoalesceTimeMs) {
+        this.ackCoalesceTimeMs = ackCoalesceTimeMs;
+    }
+
+    /**
+     * Individual acks are turned into cumulative acks of the contiguous prefix of completed messages of every
+     * partition, which allows parallel out-of-order processing without acking every message. Messages completed
+     * after a gap are redelivered if the consumer fails before the gap is filled.
+     * Only applicable to Exclusive and Failover subscriptions.
+     *
+     * @param cumulativeAckWatermark
+     */
+    public void setCumulativeAckWatermark(boolean cumulativeAckWatermark) {
+        this.cumulativeAckWatermark = cumulativeAckWatermark;
+    }
+
+    /**
+     * Unacked messages are tracked as packed primitive ids instead of message id objects, which cuts the memory
+     * held per in-flight message when ack timeout is enabled. Timeout redelivery works the same way.
+     *
+     * @param compactUnAckedTracker
+     */
+    public void setCompactUnAckedTracker(boolean compactUnAckedTracker) {
+        this.compactUnAckedTracker = compactUnAckedTracker;
+    }
+
+    /**
+     * Records per topic pauses, resume latency and consumption for {@link WeightedConsumerStats}. Recording is done
+     * on striped counters, disabled by default.
+     *
+     * @param weightedStats
+     */
+    public void setWeightedStats(boolean weightedStats) {
+        this.weightedStats = weightedStats;
+    }
+
+    /**
+     * Stamps messages as they are queued inside the consumer and records per topic histograms of the time they wait
+     * before being handed out, reported through {@link WeightedConsumerStats}. Requires weighted stats.
+     *
+     * @param dwellTimeStats
+     */
+    public void setDwellTimeStats(boolean dwellTimeStats) {
+        this.dwellTimeStats = dwellTimeStats;
+    }
+
+    /**
+     * Records per topic histograms of the time from publish of messages until they are handed out and until they
+     * are acknowledged, reported through {@link WeightedConsumerStats}. Based on the publish timestamp set by the
+     * producer, so clock skew between hosts shows up in the latency. Requires weighted stats.
+     *
+     * @param endToEndLatencyStats
+     */
+    public void setEndToEndLatencyStats(boolean endToEndLatencyStats) {
+        this.endToEndLatencyStats = endToEndLatencyStats;
+    }
+
+    /**
+     * Listener notified of topics pausing, resuming, staying saturated and drifting from their share. The listener
+     * is kept on this configuration object only and is not restored by {@link #loadFromConf}.
+     *
+     * @param eventListener
+     */
+    public void setEventListener(WeightedConsumerEventListener eventListener) {
+        this.eventListener = eventListener;
+    }
+
+    /**
+     * Interval at which the consumer is sampled for listener notifications, transitions within an interval are
+     * coalesced
+     *
+     * @param eventIntervalMs
+     */
+    public void setEventIntervalMs(long eventIntervalMs) {
+        this.eventIntervalMs = eventIntervalMs;
+    }
+
+    /**
+     * Duration a topic has to stay paused to be notified as saturated
+     *
+     * @param saturationMs
+     */
+    public void setSaturationMs(long saturationMs) {
+        this.saturationMs = saturationMs;
+    }
+
+    /**
+     * Relative difference between the observed and the configured share of a topic beyond which share drift is
+     * notified, e.g. 0.5 notifies a topic configured for a fifth of the consumption once it gets less than a tenth or
+     * more than three tenths
+     *
+     * @param shareDriftTolerance
+     */
+    public void setShareDriftTolerance(double shareDriftTolerance) {
+        this.shareDriftTolerance = shareDriftTolerance;
+    }
+
+    /**
+     * Buffered acks of a partition are sent right away once they reach this count
+     *
+     * @param ackCoalesceMaxSize
+     */
+    public void setAckCoalesceMaxSize(int ackCoalesceMaxSize) {
+        this.ackCoalesceMaxSize = ackCoalesceMaxSize;
+    }
+
+    /**
+     * Interval at which backlog of every partition is estimated for catch up boost. Zero disables the boost.
+     * Every check fetches the last message id of all the partitions from the brokers.
+     *
+     * @param catchUpCheckIntervalSeconds
+     */
+    public void setCatchUpCheckIntervalSeconds(int catchUpCheckIntervalSeconds) {
+        this.catchUpCheckIntervalSeconds = catchUpCheckIntervalSeconds;
+    }
+
+    /**
+     * A partition is considered lagging if its backlog has been seen for longer than this duration without the
+     * consumer receiving up to the last message the broker had when it was first seen. Zero disables the time bound.
+     *
+     * @param catchUpLagTimeMs
+     */
+    public void setCatchUpLagTimeMs(long catchUpLagTimeMs) {
+        this.catchUpLagTimeMs = catchUpLagTimeMs;
+    }
+
+    /**
+     * A partition is considered lagging if the number of entries in backlog exceeds this bound. Zero disables the
+     * entries bound.
+     *
+     * @param catchUpLagEntries
+     */
+    public void setCatchUpLagEntries(long catchUpLagEntries) {
+        this.catchUpLagEntries = catchUpLagEntries;
+    }
+
+    public void setCatchUpBoostFactor(int catchUpBoostFactor) {
+        this.catchUpBoostFactor = catchUpBoostFactor;
+    }
+
+    /**
+     * Upper limit on the threshold of a boosted topic. Zero defaults to {@link #maxBound}
+     *
+     * @param catchUpMaxThreshold
+     */
+    public void setCatchUpMaxThreshold(int catchUpMaxThreshold) {
+        this.catchUpMaxThreshold = catchUpMaxThreshold;
+    }
+
     /**
      * In situations where local message processing is near instantaneous, user will not see any weighted consumption
      * across different topics irrespective of the weights assigned. In a way this can be desired behaviour to not
@@ -79,6 +391,34 @@ public class WeightedConsumerConfiguration {
         this.throttleReceiveQueue = shouldThrottle;
     }
 
+    /**
+     * Lets the consumer switch {@link #setThrottleReceiveQueue(boolean)} on the fly. The receive queue is throttled
+     * when the consumer is found to be lagging (all topics have messages queued and the receiver queues of internal
+     * consumers are saturated) and unthrottled again once it is tailing. {@link #throttleReceiveQueue} becomes the
+     * initial mode.
+     *
+     * @param autoThrottle
+     */
+    public void setAutoThrottleReceiveQueue(boolean autoThrottle) {
+        this.autoThrottleReceiveQueue = autoThrottle;
+    }
+
+    public void setAutoThrottleWindowSeconds(int autoThrottleWindowSeconds) {
+        this.autoThrottleWindowSeconds = autoThrottleWindowSeconds;
+    }
+
+    /**
+     * Hysteresis of the automatic switch, refer to {@link ReceiveQueueModeDetector}
+     * Applied bounds are 0 < exitRatio < enterRatio <= 1
+     *
+     * @param enterRatio
+     * @param exitRatio
+     */
+    public void setAutoThrottleRatios(double enterRatio, double exitRatio) {
+        this.autoThrottleEnterRatio = enterRatio;
+        this.autoThrottleExitRatio = exitRatio;
+    }
+
     /**
      * Caution! One should never need to change this conf in normal circumstances.
      * Default queue resume threshold is zero which should provide the fairest weighted consumption
@@ -124,6 +464,126 @@ public class WeightedConsumerConfiguration {
         return maxWeightAllowed;
     }
 
+    public boolean isAutoThrottleReceiveQueue() {
+        return autoThrottleReceiveQueue;
+    }
+
+    public int getAutoThrottleWindowSeconds() {
+        return autoThrottleWindowSeconds;
+    }
+
+    public double getAutoThrottleEnterRatio() {
+        return autoThrottleEnterRatio;
+    }
+
+    public double getAutoThrottleExitRatio() {
+        return autoThrottleExitRatio;
+    }
+
+    public int getCatchUpCheckIntervalSeconds() {
+        return catchUpCheckIntervalSeconds;
+    }
+
+    public long getCatchUpLagTimeMs() {
+        return catchUpLagTimeMs;
+    }
+
+    public long getCatchUpLagEntries() {
+        return catchUpLagEntries;
+    }
+
+    public int getCatchUpBoostFactor() {
+        return catchUpBoostFactor;
+    }
+
+    public int getCatchUpMaxThreshold() {
+        return catchUpMaxThreshold;
+    }
+
+    public Map<String, String> getTopicGroups() {
+        return Collections.unmodifiableMap(topicGroups);
+    }
+
+    public Map<String, Integer> getGroupWeights() {
+        return Collections.unmodifiableMap(groupWeights);
+    }
+
+    public boolean isCumulativeAckWatermark() {
+        return cumulativeAckWatermark;
+    }
+
+    public boolean isCompactUnAckedTracker() {
+        return compactUnAckedTracker;
+    }
+
+    public boolean isWeightedStats() {
+        return weightedStats;
+    }
+
+    public boolean isDwellTimeStats() {
+        return dwellTimeStats;
+    }
+
+    public boolean isEndToEndLatencyStats() {
+        return endToEndLatencyStats;
+    }
+
+    public WeightedConsumerEventListener getEventListener() {
+        return eventListener;
+    }
+
+    public long getEventIntervalMs() {
+        return eventIntervalMs;
+    }
+
+    public long getSaturationMs() {
+        return saturationMs;
+    }
+
+    public double getShareDriftTolerance() {
+        return shareDriftTolerance;
+    }
+
+    public long getAckCoalesceTimeMs() {
+        return ackCoalesceTimeMs;
+    }
+
+    public int getAckCoalesceMaxSize() {
+        return ackCoalesceMaxSize;
+    }
+
+    public long getMaxMessagesPerSecond() {
+        return maxMessagesPerSecond;
+    }
+
+    public Map<String, TopicRateLimit> getTopicRateLimits() {
+        return Collections.unmodifiableMap(topicRateLimits);
+    }
+
+    public Map<String, TopicRedeliveryPolicy> getTopicRedeliveryPolicies() {
+        return Collections.unmodifiableMap(topicRedeliveryPolicies);
+    }
+
+    public boolean isWeightScaledRedelivery() {
+        return weightScaledRedelivery;
+    }
+
+    public int getWeightScaledRedeliveryMaxFactor() {
+        return weightScaledRedeliveryMaxFactor;
+    }
+
+    public int getRetryTopicDecayBuckets() {
+        return retryTopicDecayBuckets;
+    }
+
+    public int getLocalReceiveBatchSize() {
+        return localReceiveBatchSize;
+    }
+
+    public Map<String, MessageClassSpec> getTopicMessageClasses() {
+        return Collections.unmodifiableMap(topicMessageClasses);
+    }
+
     @Override
     public String toString() {
         StringBuilder str = new StringBuilder();
@@ -134,14 +594,86 @@ public class WeightedConsumerConfiguration {
         str.append(" max_weight_allowed=").append(maxWeightAllowed);
         str.append(" throttle_recv_queue=").append(throttleReceiveQueue);
         str.append(" queue_resume_threshold=").append(queueResumeThreshold);
+        if (autoThrottleReceiveQueue) {
+            str.append(" auto_throttle_window_secs=").append(autoThrottleWindowSeconds);
+            str.append(" auto_throttle_enter_ratio=").append(autoThrottleEnterRatio);
+            str.append(" auto_throttle_exit_ratio=").append(autoThrottleExitRatio);
+        }
+        if (maxMessagesPerSecond > 0) {
+            str.append(" max_msgs_per_sec=").append(maxMessagesPerSecond);
+        }
+        if (cumulativeAckWatermark) {
+            str.append(" cumulative_ack_watermark=").append(cumulativeAckWatermark);
+        }
+        if (compactUnAckedTracker) {
+            str.append(" compact_unacked_tracker=").append(compactUnAckedTracker);
+        }
+        if (weightedStats) {
+            str.append(" weighted_stats=").append(weightedStats);
+        }
+        if (dwellTimeStats) {
+            str.append(" dwell_time_stats=").append(dwellTimeStats);
+        }
+        if (endToEndLatencyStats) {
+            str.append(" end_to_end_latency_stats=").append(endToEndLatencyStats);
+        }
+        if (eventListener != null) {
+            str.append(" event_interval_ms=").append(eventIntervalMs);
+            str.append(" saturation_ms=").append(saturationMs);
+            str.append(" share_drift_tolerance=").append(shareDriftTolerance);
+        }
+        if (ackCoalesceTimeMs > 0) {
+            str.append(" ack_coalesce_time_ms=").append(ackCoalesceTimeMs);
+            str.append(" ack_coalesce_max_size=").append(ackCoalesceMaxSize);
+        }
+        if (catchUpCheckIntervalSeconds > 0) {
+            str.append(" catch_up_interval_secs=").append(catchUpCheckIntervalSeconds);
+            str.append(" catch_up_lag_time_ms=").append(catchUpLagTimeMs);
+            str.append(" catch_up_lag_entries=").append(catchUpLagEntries);
+            str.append(" catch_up_boost_factor=").append(catchUpBoostFactor);
+            str.append(" catch_up_max_threshold=").append(catchUpMaxThreshold);
+        }
         str.append(" topic_weights=[");
         topicWeights.forEach((topic, weight) -> str.append(" {").append(topic).append(", ").append(weight).append("}"));
         str.append(" ]");
+        if (!topicGroups.isEmpty()) {
+            str.append(" topic_groups=[");
+            topicGroups.forEach((topic, group) -> str.append(" {").append(topic).append(", ").append(group).append("}"));
+            str.append(" ] group_weights=[");
+            groupWeights.forEach((group, weight) -> str.append(" {").append(group).append(", ").append(weight).append("}"));
+            str.append(" ]");
+        }
+        if (!topicRateLimits.isEmpty()) {
+            str.append(" topic_rate_limits=[");
+            topicRateLimits.forEach((topic, rateLimit) -> str.append(" {").append(topic).append(", ").append(rateLimit).append("}"));
+            str.append(" ]");
+        }
+        if (weightScaledRedelivery) {
+            str.append(" weight_scaled_redelivery=").append(weightScaledRedelivery);
+            str.append(" weight_scaled_redelivery_max_factor=").append(weightScaledRedeliveryMaxFactor);
+        }
+        if (localReceiveBatchSize > 0) {
+            str.append(" local_receive_batch_size=").append(localReceiveBatchSize);
+        }
+        if (retryTopicDecayBuckets > 0) {
+            str.append(" retry_topic_decay_buckets=").append(retryTopicDecayBuckets);
+        }
+        if (!topicMessageClasses.isEmpty()) {
+            str.append(" topic_message_classes=[");
+            topicMessageClasses.forEach((topic, classes) -> str.append(" {").append(topic).append(", ").append(classes).append("}"));
+            str.append(" ]");
+        }
+        if (!topicRedeliveryPolicies.isEmpty()) {
+            str.append(" topic_redelivery_policies=[");
+            topicRedeliveryPolicies.forEach((topic, policy) -> str.append(" {").append(topic).append(", ").append(policy).append("}"));
+            str.append(" ]");
+        }
         return str.toString();
     }
 
     private void validate() {
         Preconditions.checkArgument(maxWeightAllowed >= 1, "max weight allowed should be equal or more than 1");
+        Preconditions.checkArgument(weightScaledRedeliveryMaxFactor >= 1, "weight scaled redelivery max factor should be at least 1");
         Preconditions.checkArgument(minBound >= 100, "min bound should be at least 100");
         Preconditions.checkArgument(maxBound >= minBound, "max bound should be at least as much as min bound %s", minBound);
         Preconditions.checkArgument(queueResumeThreshold >= 0 && queueResumeThreshold <= minBound, "queue resume threshold should be in the range [0,minBound(%s)]", minBound);
@@ -154,6 +686,53 @@ public class WeightedConsumerConfiguration {
                         maxWeightAllowed, weight.toString(), entry.getKey());
             }
         }
+        if (autoThrottleReceiveQueue) {
+            Preconditions.checkArgument(autoThrottleWindowSeconds >= 1, "auto throttle window should be at least 1 second");
+            Preconditions.checkArgument(autoThrottleExitRatio > 0 && autoThrottleExitRatio < autoThrottleEnterRatio
+                    && autoThrottleEnterRatio <= 1, "auto throttle ratios should satisfy 0 < exit ratio < enter ratio <= 1");
+        }
+        Preconditions.checkArgument(retryTopicDecayBuckets >= 0 && retryTopicDecayBuckets <= 16,
+                "retry topic decay buckets should be in the range [0,16]");
+        Preconditions.checkArgument(localReceiveBatchSize >= 0 && localReceiveBatchSize <= minBound,
+                "local receive batch size should be in the range [0,minBound(%s)]", minBound);
+        Preconditions.checkArgument(!dwellTimeStats || weightedStats, "dwell time stats require weighted stats");
+        Preconditions.checkArgument(!endToEndLatencyStats || weightedStats, "end to end latency stats require weighted stats");
+        Preconditions.checkArgument(eventIntervalMs >= 1, "event interval should be at least 1 ms");
+        Preconditions.checkArgument(saturationMs >= 0, "saturation duration should be non-negative");
+        Preconditions.checkArgument(shareDriftTolerance > 0, "share drift tolerance should be positive");
+        Preconditions.checkArgument(maxMessagesPerSecond >= 0, "max messages per second should be non-negative");
+        Preconditions.checkArgument(ackCoalesceTimeMs >= 0, "ack coalesce time should be non-negative");
+        Preconditions.checkArgument(ackCoalesceMaxSize >= 1, "ack coalesce max size should be at least 1");
+        Preconditions.checkArgument(catchUpCheckIntervalSeconds >= 0, "catch up check interval should be non-negative");
+        if (catchUpCheckIntervalSeconds > 0) {
+            Preconditions.checkArgument(catchUpLagTimeMs > 0 || catchUpLagEntries > 0,
+                    "either of catch up lag time or lag entries bound is required when catch up boost is enabled");
+            Preconditions.checkArgument(catchUpLagTimeMs >= 0 && catchUpLagEntries >= 0, "catch up lag bounds should be non-negative");
+            Preconditions.checkArgument(catchUpBoostFactor >= 1, "catch up boost factor should be at least 1");
+            Preconditions.checkArgument(catchUpMaxThreshold == 0 || catchUpMaxThreshold >= minBound,
+                    "catch up max threshold should be at least as much as min bound %s", minBound);
+        }
+        for (Map.Entry<String, Integer> entry : groupWeights.entrySet()) {
+            Preconditions.checkArgument(entry.getValue() >= 1 && entry.getValue() <= maxWeightAllowed,
+                    "group weights should be in the range [1,maxWeightAllowed(%s)], found %s for group %s",
+                    maxWeightAllowed, entry.getValue().toString(), entry.getKey());
+        }
+        for (String group : topicGroups.values()) {
+            Preconditions.checkArgument(groupWeights.containsKey(group), "weight not configured for group %s", group);
+        }
+        for (Map.Entry<String, TopicRateLimit> entry : topicRateLimits.entrySet()) {
+            Preconditions.checkArgument(entry.getValue().getMaxMessagesPerSecond() > 0 || entry.getValue().getMaxBytesPerSecond() > 0,
+                    "either of max messages or bytes per second is required in rate limit of topic %s", entry.getKey());
+        }
+        topicMessageClasses.values().forEach(classes -> classes.validate(maxWeightAllowed));
+        for (Map.Entry<String, TopicRedeliveryPolicy> entry : topicRedeliveryPolicies.entrySet()) {
+            Preconditions.checkArgument(entry.getValue().getAckTimeoutMs() >= 0 && entry.getValue().getNegativeAckDelayMs() >= 0,
+                    "ack timeout and negative ack delay should be non-negative in redelivery policy of topic %s", entry.getKey());
+            Preconditions.checkArgument(entry.getValue().getAckTimeoutMs() == 0
+                            || entry.getValue().getAckTimeoutMs() >= TopicRedeliveryPolicy.MIN_ACK_TIMEOUT_MS,
+                    "ack timeout should be zero or at least %s ms in redelivery policy of topic %s",
+                    TopicRedeliveryPolicy.MIN_ACK_TIMEOUT_MS, entry.getKey());
+        }
     }
 
     public <T> void populateBuilder(ConsumerBuilder<T> builder) {
@@ -164,7 +743,36 @@ public class WeightedConsumerConfiguration {
         addProp(builder, "THROTTLE_RQ", throttleReceiveQueue);
         addProp(builder, "RESUME_THRESHOLD", queueResumeThreshold);
         addProp(builder, "MAX_WT_ALLOWED", maxWeightAllowed);
+        addProp(builder, "AUTO_THROTTLE_RQ", autoThrottleReceiveQueue);
+        addProp(builder, "AUTO_THROTTLE_WINDOW_SECS", autoThrottleWindowSeconds);
+        addProp(builder, "AUTO_THROTTLE_ENTER", autoThrottleEnterRatio);
+        addProp(builder, "AUTO_THROTTLE_EXIT", autoThrottleExitRatio);
+        addProp(builder, "MAX_MSGS_PER_SEC", maxMessagesPerSecond);
+        addProp(builder, "ACK_WATERMARK", cumulativeAckWatermark);
+        addProp(builder, "COMPACT_UNACKED_TRACKER", compactUnAckedTracker);
+        addProp(builder, "WEIGHTED_STATS", weightedStats);
+        addProp(builder, "DWELL_TIME_STATS", dwellTimeStats);
+        addProp(builder, "E2E_LATENCY_STATS", endToEndLatencyStats);
+        addProp(builder, "EVENT_INTERVAL_MS", eventIntervalMs);
+        addProp(builder, "SATURATION_MS", saturationMs);
+        addProp(builder, "SHARE_DRIFT_TOLERANCE", shareDriftTolerance);
+        addProp(builder, "REDELIVERY_WT_SCALED", weightScaledRedelivery);
+        addProp(builder, "REDELIVERY_WT_SCALED_MAX_FACTOR", weightScaledRedeliveryMaxFactor);
+        addProp(builder, "RETRY_DECAY_BUCKETS", retryTopicDecayBuckets);
+        addProp(builder, "LOCAL_RECEIVE_BATCH", localReceiveBatchSize);
+        addProp(builder, "ACK_COALESCE_TIME_MS", ackCoalesceTimeMs);
+        addProp(builder, "ACK_COALESCE_MAX_SIZE", ackCoalesceMaxSize);
+        addProp(builder, "CATCHUP_INTERVAL_SECS", catchUpCheckIntervalSeconds);
+        addProp(builder, "CATCHUP_LAG_TIME_MS", catchUpLagTimeMs);
+        addProp(builder, "CATCHUP_LAG_ENTRIES", catchUpLagEntries);
+        addProp(builder, "CATCHUP_BOOST_FACTOR", catchUpBoostFactor);
+        addProp(builder, "CATCHUP_MAX_THRESHOLD", catchUpMaxThreshold);
         topicWeights.forEach((topic, weight) -> populateTopicInBuilder(builder, topic, weight));
+        topicGroups.forEach((topic, group) -> builder.property(WT_TOPIC_GROUP_CONF_PREFIX + topic, group));
+        groupWeights.forEach((group, weight) -> builder.property(WT_GROUP_WEIGHT_CONF_PREFIX + group, weight.toString()));
+        topicRateLimits.forEach((topic, rateLimit) -> builder.property(WT_TOPIC_RATE_LIMIT_CONF_PREFIX + topic, rateLimit.toString()));
+        topicRedeliveryPolicies.forEach((topic, policy) -> builder.property(WT_TOPIC_REDELIVERY_CONF_PREFIX + topic, policy.toString()));
+        topicMessageClasses.forEach((topic, classes) -> builder.property(WT_TOPIC_CLASSES_CONF_PREFIX + topic, classes.toString()));
     }
 
     public static <T> void populateTopicInBuilder(ConsumerBuilder<T> builder, String topic, Integer weight) {
@@ -180,6 +788,30 @@ public class WeightedConsumerConfiguration {
         weightConf.setThrottleReceiveQueue(Boolean.parseBoolean(readPropOrDefault(conf, "THROTTLE_RQ", "false")));
         weightConf.setQueueResumeThreshold(parseConfAsIntOrDefault(conf, "RESUME_THRESHOLD", 0));
         weightConf.setMaxWeightAllowed(parseConfAsIntOrDefault(conf, "MAX_WT_ALLOWED", 100));
+        weightConf.setAutoThrottleReceiveQueue(Boolean.parseBoolean(readPropOrDefault(conf, "AUTO_THROTTLE_RQ", "false")));
+        weightConf.setAutoThrottleWindowSeconds(parseConfAsIntOrDefault(conf, "AUTO_THROTTLE_WINDOW_SECS", 10));
+        weightConf.setAutoThrottleRatios(parseConfAsDoubleOrDefault(conf, "AUTO_THROTTLE_ENTER", 0.9),
+                parseConfAsDoubleOrDefault(conf, "AUTO_THROTTLE_EXIT", 0.5));
+        weightConf.setMaxMessagesPerSecond(parseConfAsLongOrDefault(conf, "MAX_MSGS_PER_SEC", 0L));
+        weightConf.setCumulativeAckWatermark(Boolean.parseBoolean(readPropOrDefault(conf, "ACK_WATERMARK", "false")));
+        weightConf.setCompactUnAckedTracker(Boolean.parseBoolean(readPropOrDefault(conf, "COMPACT_UNACKED_TRACKER", "false")));
+        weightConf.setWeightedStats(Boolean.parseBoolean(readPropOrDefault(conf, "WEIGHTED_STATS", "false")));
+        weightConf.setDwellTimeStats(Boolean.parseBoolean(readPropOrDefault(conf, "DWELL_TIME_STATS", "false")));
+        weightConf.setEndToEndLatencyStats(Boolean.parseBoolean(readPropOrDefault(conf, "E2E_LATENCY_STATS", "false")));
+        weightConf.setEventIntervalMs(parseConfAsLongOrDefault(conf, "EVENT_INTERVAL_MS", 1000L));
+        weightConf.setSaturationMs(parseConfAsLongOrDefault(conf, "SATURATION_MS", 10000L));
+        weightConf.setShareDriftTolerance(parseConfAsDoubleOrDefault(conf, "SHARE_DRIFT_TOLERANCE", 0.5));
+        weightConf.setWeightScaledRedelivery(Boolean.parseBoolean(readPropOrDefault(conf, "REDELIVERY_WT_SCALED", "false")));
+        weightConf.setWeightScaledRedeliveryMaxFactor(parseConfAsIntOrDefault(conf, "REDELIVERY_WT_SCALED_MAX_FACTOR", 10));
+        weightConf.setRetryTopicDecayBuckets(parseConfAsIntOrDefault(conf, "RETRY_DECAY_BUCKETS", 0));
+        weightConf.setLocalReceiveBatchSize(parseConfAsIntOrDefault(conf, "LOCAL_RECEIVE_BATCH", 0));
+        weightConf.setAckCoalesceTimeMs(parseConfAsLongOrDefault(conf, "ACK_COALESCE_TIME_MS", 0L));
+        weightConf.setAckCoalesceMaxSize(parseConfAsIntOrDefault(conf, "ACK_COALESCE_MAX_SIZE", 1000));
+        weightConf.setCatchUpCheckIntervalSeconds(parseConfAsIntOrDefault(conf, "CATCHUP_INTERVAL_SECS", 0));
+        weightConf.setCatchUpLagTimeMs(parseConfAsLongOrDefault(conf, "CATCHUP_LAG_TIME_MS", 0L));
+        weightConf.setCatchUpLagEntries(parseConfAsLongOrDefault(conf, "CATCHUP_LAG_ENTRIES", 0L));
+        weightConf.setCatchUpBoostFactor(parseConfAsIntOrDefault(conf, "CATCHUP_BOOST_FACTOR", 2));
+        weightConf.setCatchUpMaxThreshold(parseConfAsIntOrDefault(conf, "CATCHUP_MAX_THRESHOLD", 0));
 
         SortedMap<String, String> props = conf.getProperties();
         for (String confKey : props.tailMap(WT_TOPIC_CONF_PREFIX).keySet()) {
@@ -194,6 +826,15 @@ public class WeightedConsumerConfiguration {
                 weightConf.addTopic(topic, weight);
             }
         }
+        readPrefixedProps(conf, WT_TOPIC_GROUP_CONF_PREFIX).forEach(weightConf::addTopicGroup);
+        readPrefixedProps(conf, WT_GROUP_WEIGHT_CONF_PREFIX).forEach((group, weight) ->
+                weightConf.setGroupWeight(group, Integer.parseInt(weight)));
+        readPrefixedProps(conf, WT_TOPIC_RATE_LIMIT_CONF_PREFIX).forEach((topic, rateLimit) ->
+                weightConf.topicRateLimits.put(topic, TopicRateLimit.parse(rateLimit)));
+        readPrefixedProps(conf, WT_TOPIC_REDELIVERY_CONF_PREFIX).forEach((topic, policy) ->
+                weightConf.topicRedeliveryPolicies.put(topic, TopicRedeliveryPolicy.parse(policy)));
+        readPrefixedProps(conf, WT_TOPIC_CLASSES_CONF_PREFIX).forEach((topic, classes) ->
+                weightConf.topicMessageClasses.put(topic, MessageClassSpec.parse(classes)));
 
         weightConf.validate();
         return weightConf;
@@ -203,6 +844,17 @@ public class WeightedConsumerConfiguration {
         builder.property(WT_CONF_PREFIX + key, val.toString());
     }
 
+    private static <T> Map<String, String> readPrefixedProps(ConsumerConfigurationData<T> conf, String prefix) {
+        Map<String, String> ret = new HashMap<>();
+        for (Map.Entry<String, String> entry : conf.getProperties().tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            ret.put(entry.getKey().substring(prefix.length()), entry.getValue());
+        }
+        return ret;
+    }
+
     private static <T> String readPropOrDefault(ConsumerConfigurationData<T> conf, String key, String defaultVal) {
         String val = conf.getProperties().get(WT_CONF_PREFIX + key);
         return val != null ? val : defaultVal;
@@ -216,6 +868,22 @@ public class WeightedConsumerConfiguration {
         }
     }
 
+    private static <T> Long parseConfAsLongOrDefault(ConsumerConfigurationData<T> conf, String key, Long defaultVal) {
+        try {
+            return Long.parseLong(readPropOrDefault(conf, key, defaultVal != null ? defaultVal.toString() : null));
+        } catch (NumberFormatException ex) {
+            return defaultVal;
+        }
+    }
+
+    private static <T> Double parseConfAsDoubleOrDefault(ConsumerConfigurationData<T> conf, String key, Double defaultVal) {
+        try {
+            return Double.parseDouble(readPropOrDefault(conf, key, defaultVal != null ? defaultVal.toString() : null));
+        } catch (NumberFormatException | NullPointerException ex) {
+            return defaultVal;
+        }
+    }
+
     /**
      * Returns weight if the topic(partitioned or otherwise) follows the convention of appending weight to the name
      * Returns null if weight cannot be determined
@@ -0,0 +1,143 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Turns periodic samples of the consumer state into coalesced notifications of {@link WeightedConsumerEventListener}.
+ * Only consumption is counted on the hot path, pauses are derived from the sampled set of paused topics.
+ * Share drift is evaluated among the topics which had messages waiting in the shared queue, as consumption of the
+ * other topics is bound by their arrival rate rather than their weight, and only once enough messages were consumed
+ * in the interval for the shares to be meaningful.
+ */
+public class WeightedConsumerEventDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(WeightedConsumerEventDispatcher.class);
+    private static final long MIN_DRIFT_MESSAGES = 100;
+    private final WeightedConsumerEventListener listener;
+    private final Executor executor;
+    private final long saturationMs;
+    private final double shareDriftTolerance;
+    private final ConcurrentHashMap<String, LongAdder> consumed = new ConcurrentHashMap<>();
+    // state below is only touched by sample
+    private final Map<String, Long> pausedSinceMs = new HashMap<>();
+    private final Set<String> saturatedTopics = new HashSet<>();
+    private final Set<String> driftingTopics = new HashSet<>();
+    private final Map<String, Long> lastConsumed = new HashMap<>();
+
+    public WeightedConsumerEventDispatcher(WeightedConsumerEventListener listener, Executor executor,
+                                           long saturationMs, double shareDriftTolerance) {
+        this.listener = listener;
+        this.executor = executor;
+        this.saturationMs = saturationMs;
+        this.shareDriftTolerance = shareDriftTolerance;
+    }
+
+    public void onConsumed(String topic) {
+        LongAdder counter = consumed.get(topic);
+        if (counter == null) {
+            counter = consumed.computeIfAbsent(topic, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * @param topics topics currently subscribed
+     * @param pausedTopics topics with at least one paused partition
+     * @param queuedTopics topics with messages waiting in the shared queue
+     * @param configuredThreshold threshold of a topic as derived from its weight alone
+     * @param nowMs
+     */
+    public synchronized void sample(Set<String> topics, Set<String> pausedTopics, Set<String> queuedTopics,
+                                    ToIntFunction<String> configuredThreshold, long nowMs) {
+        List<Runnable> notifications = new ArrayList<>();
+
+        for (String topic : topics) {
+            boolean paused = pausedTopics.contains(topic);
+            Long pausedSince = pausedSinceMs.get(topic);
+            if (paused && pausedSince == null) {
+                pausedSinceMs.put(topic, nowMs);
+                notifications.add(() -> listener.onTopicPaused(topic));
+            } else if (paused) {
+                long saturatedForMs = nowMs - pausedSince;
+                if (saturatedForMs >= saturationMs && saturatedTopics.add(topic)) {
+                    notifications.add(() -> listener.onTopicSaturated(topic, saturatedForMs));
+                }
+            } else if (pausedSince != null) {
+                pausedSinceMs.remove(topic);
+                saturatedTopics.remove(topic);
+                notifications.add(() -> listener.onTopicResumed(topic));
+            }
+        }
+
+        Map<String, Long> deltas = new HashMap<>();
+        long totalDelta = 0;
+        long totalThreshold = 0;
+        for (String topic : topics) {
+            LongAdder counter = consumed.get(topic);
+            long count = counter == null ? 0 : counter.sum();
+            Long previous = lastConsumed.put(topic, count);
+            if (queuedTopics.contains(topic)) {
+                long delta = count - (previous == null ? 0 : previous);
+                deltas.put(topic, delta);
+                totalDelta += delta;
+                totalThreshold += configuredThreshold.applyAsInt(topic);
+            }
+        }
+        if (deltas.size() > 1 && totalDelta >= MIN_DRIFT_MESSAGES && totalThreshold > 0) {
+            for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+                String topic = entry.getKey();
+                double observedShare = entry.getValue() / (double) totalDelta;
+                double configuredShare = configuredThreshold.applyAsInt(topic) / (double) totalThreshold;
+                if (Math.abs(observedShare - configuredShare) > shareDriftTolerance * configuredShare) {
+                    if (driftingTopics.add(topic)) {
+                        notifications.add(() -> listener.onShareDrift(topic, observedShare, configuredShare));
+                    }
+                } else {
+                    driftingTopics.remove(topic);
+                }
+            }
+        }
+
+        pausedSinceMs.keySet().retainAll(topics);
+        saturatedTopics.retainAll(topics);
+        driftingTopics.retainAll(topics);
+        lastConsumed.keySet().retainAll(topics);
+        consumed.keySet().retainAll(topics);
+
+        if (!notifications.isEmpty()) {
+            executor.execute(() -> notifications.forEach(notification -> {
+                try {
+                    notification.run();
+                } catch (Throwable t) {
+                    log.warn("Weighted consumer event listener failed", t);
+                }
+            }));
+        }
+    }
+}
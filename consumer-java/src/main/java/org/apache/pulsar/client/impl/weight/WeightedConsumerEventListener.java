@@ -0,0 +1,63 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+/**
+ * Receives signals of how the weights play out, e.g. as leading indicators for autoscaling. The consumer samples its
+ * state periodically and notifies only the transitions since the previous sample, so a topic flapping within a
+ * sample interval is notified at most once. Notifications are delivered asynchronously on a client executor, in
+ * the order they were detected, and must not block.
+ * Topics are reported by their name without partition suffix.
+ */
+public interface WeightedConsumerEventListener {
+
+    /**
+     * Partitions of the topic have stopped being received from, on its threshold, rate limit, capacity or
+     * an explicit pause
+     *
+     * @param topic
+     */
+    default void onTopicPaused(String topic) {
+    }
+
+    /**
+     * None of the partitions of the topic is paused anymore
+     *
+     * @param topic
+     */
+    default void onTopicResumed(String topic) {
+    }
+
+    /**
+     * The topic has stayed paused for longer than the saturation duration, notified once per episode
+     *
+     * @param topic
+     * @param saturatedForMs
+     */
+    default void onTopicSaturated(String topic, long saturatedForMs) {
+    }
+
+    /**
+     * The share of consumption of the topic has drifted from its share of the thresholds beyond the tolerance, while
+     * the topics compared all had messages waiting in the shared queue. Notified once per episode
+     *
+     * @param topic
+     * @param observedShare
+     * @param configuredShare
+     */
+    default void onShareDrift(String topic, double observedShare, double configuredShare) {
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+/**
+ * Java Flight Recorder events of the weighted consumer. Events are disabled by default, and only populated and
+ * committed while they are enabled in a recording, so they cost nothing otherwise. On runtimes without JFR the events
+ * are dropped. The event classes, {@link WeightedConsumerJfrEvents}, are compiled apart from the Java 8 sources, as
+ * they need the jdk.jfr module, and are only touched once JFR is known to be present, so this class loads without JFR
+ * as well.
+ */
+public final class WeightedConsumerEvents {
+    private static final boolean AVAILABLE = isJfrAvailable();
+
+    private WeightedConsumerEvents() {
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * A partition has stopped being received from
+     *
+     * @param partition
+     * @param reason threshold or rate limit
+     * @param messagesInQueue messages of the topic counted against its threshold
+     * @param threshold
+     * @param queueSize size of the shared queue
+     */
+    public static void topicPaused(String partition, String reason, int messagesInQueue, int threshold, int queueSize) {
+        if (AVAILABLE) {
+            WeightedConsumerJfrEvents.topicPaused(partition, reason, messagesInQueue, threshold, queueSize);
+        }
+    }
+
+    /**
+     * The shared queue has drained below its resume threshold and paused partitions are received from again
+     *
+     * @param resumedConsumers
+     * @param heldConsumers consumers left paused as their topic is paused or rate limited
+     * @param queueSize size of the shared queue
+     */
+    public static void consumersResumed(int resumedConsumers, int heldConsumers, int queueSize) {
+        if (AVAILABLE) {
+            WeightedConsumerJfrEvents.consumersResumed(resumedConsumers, heldConsumers, queueSize);
+        }
+    }
+
+    /**
+     * Queued messages have been dropped, on redelivery or seek
+     *
+     * @param droppedMessages
+     */
+    public static void incomingMessagesReset(int droppedMessages) {
+        if (AVAILABLE) {
+            WeightedConsumerJfrEvents.incomingMessagesReset(droppedMessages);
+        }
+    }
+
+    /**
+     * Returns whether threshold changes are being recorded, computing the thresholds to compare can be skipped
+     * otherwise
+     */
+    public static boolean isThresholdChangeEnabled() {
+        return AVAILABLE && WeightedConsumerJfrEvents.isThresholdChangeEnabled();
+    }
+
+    /**
+     * @param topic
+     * @param reason catch up boost or capacity
+     * @param previousThreshold
+     * @param threshold
+     */
+    public static void thresholdChanged(String topic, String reason, int previousThreshold, int threshold) {
+        if (AVAILABLE) {
+            WeightedConsumerJfrEvents.thresholdChanged(topic, reason, previousThreshold, threshold);
+        }
+    }
+}
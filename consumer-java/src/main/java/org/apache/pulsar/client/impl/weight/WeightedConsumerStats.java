@@ -0,0 +1,213 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Point in time view of how the weights play out, per topic. Rates and observed shares cover the interval since the
+ * previous snapshot taken with the same {@link Interval}.
+ */
+public class WeightedConsumerStats {
+    private final long intervalMs;
+    private final boolean receiveQueueThrottled;
+    private final long receiveQueueModeSwitchCount;
+    private final Map<String, TopicStats> topics;
+
+    public WeightedConsumerStats(long intervalMs, boolean receiveQueueThrottled, long receiveQueueModeSwitchCount,
+                                 Map<String, TopicStats> topics) {
+        this.intervalMs = intervalMs;
+        this.receiveQueueThrottled = receiveQueueThrottled;
+        this.receiveQueueModeSwitchCount = receiveQueueModeSwitchCount;
+        this.topics = Collections.unmodifiableMap(topics);
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * Whether weighted thresholds are applied on the receiver queues of internal consumers
+     */
+    public boolean isReceiveQueueThrottled() {
+        return receiveQueueThrottled;
+    }
+
+    /**
+     * Number of times the receive queue mode has been switched automatically
+     */
+    public long getReceiveQueueModeSwitchCount() {
+        return receiveQueueModeSwitchCount;
+    }
+
+    /**
+     * Returns the stats keyed by topic name without partition suffix
+     */
+    public Map<String, TopicStats> getTopics() {
+        return topics;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder("interval_ms=").append(intervalMs)
+                .append(" receive_queue_throttled=").append(receiveQueueThrottled)
+                .append(" receive_queue_mode_switches=").append(receiveQueueModeSwitchCount);
+        topics.forEach((topic, stats) -> str.append("\n").append(topic).append(" ").append(stats));
+        return str.toString();
+    }
+
+    /**
+     * Start of the interval of a reader of the stats, so that readers taking snapshots independently, e.g. a metrics
+     * exporter and a periodic log, each get rates over their own interval
+     */
+    public static class Interval {
+        long startNanos = System.nanoTime();
+        final Map<String, Long> consumed = new HashMap<>();
+    }
+
+    public static class TopicStats {
+        private final int messagesInQueue;
+        private final int threshold;
+        private final long pauseCount;
+        private final long pausedTimeMs;
+        private final LogBucketHistogram.Snapshot resumeLatencyMs;
+        private final LogBucketHistogram.Snapshot dwellTimeMicros;
+        private final LogBucketHistogram.Snapshot publishToReceiveMs;
+        private final LogBucketHistogram.Snapshot publishToAckMs;
+        private final long consumedMessages;
+        private final double consumptionRate;
+        private final double observedShare;
+        private final double configuredShare;
+
+        public TopicStats(int messagesInQueue, int threshold, long pauseCount, long pausedTimeMs,
+                          LogBucketHistogram.Snapshot resumeLatencyMs, LogBucketHistogram.Snapshot dwellTimeMicros,
+                          LogBucketHistogram.Snapshot publishToReceiveMs, LogBucketHistogram.Snapshot publishToAckMs,
+                          long consumedMessages, double consumptionRate,
+                          double observedShare, double configuredShare) {
+            this.messagesInQueue = messagesInQueue;
+            this.threshold = threshold;
+            this.pauseCount = pauseCount;
+            this.pausedTimeMs = pausedTimeMs;
+            this.resumeLatencyMs = resumeLatencyMs;
+            this.dwellTimeMicros = dwellTimeMicros;
+            this.publishToReceiveMs = publishToReceiveMs;
+            this.publishToAckMs = publishToAckMs;
+            this.consumedMessages = consumedMessages;
+            this.consumptionRate = consumptionRate;
+            this.observedShare = observedShare;
+            this.configuredShare = configuredShare;
+        }
+
+        /**
+         * Messages of the topic counted against its threshold
+         */
+        public int getMessagesInQueue() {
+            return messagesInQueue;
+        }
+
+        /**
+         * Current threshold, including catch up boost and reported capacity
+         */
+        public int getThreshold() {
+            return threshold;
+        }
+
+        /**
+         * Number of times a partition of the topic has been paused
+         */
+        public long getPauseCount() {
+            return pauseCount;
+        }
+
+        /**
+         * Time partitions of the topic have spent paused, summed over partitions and including ongoing pauses
+         */
+        public long getPausedTimeMs() {
+            return pausedTimeMs;
+        }
+
+        public LogBucketHistogram.Snapshot getResumeLatencyMs() {
+            return resumeLatencyMs;
+        }
+
+        /**
+         * Time messages spent queued inside the consumer, in the shared queue or in the sub-queue of their message
+         * class, before being handed out. Empty unless dwell time stats are enabled
+         */
+        public LogBucketHistogram.Snapshot getDwellTimeMicros() {
+            return dwellTimeMicros;
+        }
+
+        /**
+         * Time from publish until messages were handed out. Empty unless end to end latency stats are enabled
+         */
+        public LogBucketHistogram.Snapshot getPublishToReceiveMs() {
+            return publishToReceiveMs;
+        }
+
+        /**
+         * Time from publish until messages were acknowledged individually by message. Acks by message id alone are
+         * not included, as the publish time is not known from the id
+         */
+        public LogBucketHistogram.Snapshot getPublishToAckMs() {
+            return publishToAckMs;
+        }
+
+        /**
+         * Messages taken off the shared queue, or handed to a pending receive directly, since the consumer was created
+         */
+        public long getConsumedMessages() {
+            return consumedMessages;
+        }
+
+        /**
+         * Messages per second taken off the shared queue during the interval
+         */
+        public double getConsumptionRate() {
+            return consumptionRate;
+        }
+
+        /**
+         * Fraction of the messages taken off the shared queue during the interval which belonged to the topic
+         */
+        public double getObservedShare() {
+            return observedShare;
+        }
+
+        /**
+         * Fraction of the sum of the configured thresholds of all topics which belongs to the topic
+         */
+        public double getConfiguredShare() {
+            return configuredShare;
+        }
+
+        @Override
+        public String toString() {
+            return "queued=" + messagesInQueue + "/" + threshold
+                    + " pauses=" + pauseCount
+                    + " paused_ms=" + pausedTimeMs
+                    + " resume_latency_ms=[" + resumeLatencyMs + "]"
+                    + (dwellTimeMicros.getCount() > 0 ? " dwell_us=[" + dwellTimeMicros + "]" : "")
+                    + (publishToReceiveMs.getCount() > 0 ? " publish_to_receive_ms=[" + publishToReceiveMs + "]" : "")
+                    + (publishToAckMs.getCount() > 0 ? " publish_to_ack_ms=[" + publishToAckMs + "]" : "")
+                    + " consumed=" + consumedMessages
+                    + " rate=" + String.format("%.2f", consumptionRate)
+                    + " share=" + String.format("%.3f", observedShare) + "/" + String.format("%.3f", configuredShare);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Records the per topic events behind {@link WeightedConsumerStats}. Recording only touches striped counters and
+ * concurrent maps, and snapshots read them without locking anything on the dispatch path.
+ * Topics are keyed by their partitioned topic name, and pauses are tracked per partition.
+ */
+public class WeightedConsumerStatsRecorder {
+    private final ConcurrentHashMap<String, TopicRecorder> topics = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Pause> pauses = new ConcurrentHashMap<>();
+
+    private static class TopicRecorder {
+        private final LongAdder consumed = new LongAdder();
+        private final LongAdder pauseCount = new LongAdder();
+        private final LongAdder pausedNanos = new LongAdder();
+        private final LogBucketHistogram resumeLatencyMs = new LogBucketHistogram();
+        private final LogBucketHistogram dwellTimeMicros = new LogBucketHistogram();
+        private final LogBucketHistogram publishToReceiveMs = new LogBucketHistogram();
+        private final LogBucketHistogram publishToAckMs = new LogBucketHistogram();
+    }
+
+    private static class Pause {
+        private final String topic;
+        private final TopicRecorder recorder;
+        private final long sinceNanos;
+
+        private Pause(String topic, TopicRecorder recorder, long sinceNanos) {
+            this.topic = topic;
+            this.recorder = recorder;
+            this.sinceNanos = sinceNanos;
+        }
+    }
+
+    // computeIfAbsent locks the bin even when the key is present, so the common case is looked up first
+    private TopicRecorder getRecorder(String topic) {
+        TopicRecorder recorder = topics.get(topic);
+        return recorder != null ? recorder : topics.computeIfAbsent(topic, key -> new TopicRecorder());
+    }
+
+    /**
+     * Records the pause of a partition, unless it is paused already
+     */
+    public void onPaused(String partition, String topic) {
+        if (pauses.containsKey(partition)) {
+            return;
+        }
+        TopicRecorder recorder = getRecorder(topic);
+        if (pauses.putIfAbsent(partition, new Pause(topic, recorder, System.nanoTime())) == null) {
+            recorder.pauseCount.increment();
+        }
+    }
+
+    public void onResumed(String partition) {
+        if (pauses.isEmpty()) {
+            return;
+        }
+        Pause pause = pauses.remove(partition);
+        if (pause != null) {
+            long pausedNanos = System.nanoTime() - pause.sinceNanos;
+            pause.recorder.pausedNanos.add(pausedNanos);
+            pause.recorder.resumeLatencyMs.record(TimeUnit.NANOSECONDS.toMillis(pausedNanos));
+        }
+    }
+
+    public void onConsumed(String topic) {
+        getRecorder(topic).consumed.increment();
+    }
+
+    /**
+     * Records the time a message of the topic spent queued inside the consumer before it was handed out
+     */
+    public void onDequeued(String topic, long dwellNanos) {
+        getRecorder(topic).dwellTimeMicros.record(TimeUnit.NANOSECONDS.toMicros(dwellNanos));
+    }
+
+    /**
+     * Records the time from publish of a message of the topic until it was handed out, clock skew between the
+     * producer and the consumer is not accounted for
+     */
+    public void onReceived(String topic, long publishTime) {
+        getRecorder(topic).publishToReceiveMs.record(System.currentTimeMillis() - publishTime);
+    }
+
+    public void onAcknowledged(String topic, long publishTime) {
+        getRecorder(topic).publishToAckMs.record(System.currentTimeMillis() - publishTime);
+    }
+
+    public void removeTopic(String topic) {
+        topics.remove(topic);
+        pauses.values().removeIf(pause -> pause.topic.equals(topic));
+    }
+
+    /**
+     * Takes a snapshot with rates covering the interval since the previous snapshot taken with the same interval, and
+     * starts a new one
+     *
+     * @param interval interval of the reader taking the snapshot
+     * @param topicNames topics to report
+     * @param messagesInQueue messages counted against the threshold of a topic
+     * @param threshold current threshold of a topic
+     * @param configuredThreshold threshold of a topic as derived from its weight alone
+     * @param receiveQueueThrottled
+     * @param receiveQueueModeSwitchCount
+     */
+    public synchronized WeightedConsumerStats snapshot(WeightedConsumerStats.Interval interval,
+                                                       Collection<String> topicNames, ToIntFunction<String> messagesInQueue,
+                                                       ToIntFunction<String> threshold, ToIntFunction<String> configuredThreshold,
+                                                       boolean receiveQueueThrottled, long receiveQueueModeSwitchCount) {
+        long now = System.nanoTime();
+        long intervalNanos = Math.max(1, now - interval.startNanos);
+        interval.startNanos = now;
+
+        Map<String, Long> consumedDeltas = new HashMap<>();
+        long totalDelta = 0;
+        long totalConfigured = 0;
+        for (String topic : topicNames) {
+            TopicRecorder recorder = getRecorder(topic);
+            long consumed = recorder.consumed.sum();
+            Long previous = interval.consumed.put(topic, consumed);
+            long delta = consumed - (previous == null ? 0 : previous);
+            consumedDeltas.put(topic, delta);
+            totalDelta += delta;
+            totalConfigured += configuredThreshold.applyAsInt(topic);
+        }
+        interval.consumed.keySet().retainAll(topicNames);
+
+        Map<String, Long> ongoingPausedNanos = new HashMap<>();
+        pauses.values().forEach(pause -> ongoingPausedNanos.merge(pause.topic, now - pause.sinceNanos, Long::sum));
+
+        Map<String, WeightedConsumerStats.TopicStats> stats = new HashMap<>();
+        for (String topic : topicNames) {
+            TopicRecorder recorder = getRecorder(topic);
+            long delta = consumedDeltas.get(topic);
+            long pausedNanos = recorder.pausedNanos.sum() + ongoingPausedNanos.getOrDefault(topic, 0L);
+            stats.put(topic, new WeightedConsumerStats.TopicStats(
+                    messagesInQueue.applyAsInt(topic),
+                    threshold.applyAsInt(topic),
+                    recorder.pauseCount.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(pausedNanos),
+                    recorder.resumeLatencyMs.snapshot(),
+                    recorder.dwellTimeMicros.snapshot(),
+                    recorder.publishToReceiveMs.snapshot(),
+                    recorder.publishToAckMs.snapshot(),
+                    recorder.consumed.sum(),
+                    delta * (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos,
+                    totalDelta == 0 ? 0 : delta / (double) totalDelta,
+                    totalConfigured == 0 ? 0 : configuredThreshold.applyAsInt(topic) / (double) totalConfigured));
+        }
+        return new WeightedConsumerStats(TimeUnit.NANOSECONDS.toMillis(intervalNanos), receiveQueueThrottled,
+                receiveQueueModeSwitchCount, stats);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Enforces a consumer wide throughput cap which is divided among topics in proportion to their weights. Only active
+ * topics, i.e. topics which have received messages within the last second, take part in the division so that the
+ * share of idle topics is redistributed to the busy ones. Shares are recomputed at most every 100ms, and a global
+ * bucket guards the cap while shares are being redistributed.
+ */
+public class WeightedThroughputLimiter {
+    private static final long ACTIVITY_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long RECOMPUTE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private final long maxMessagesPerSecond;
+    private final TopicThresholdDistribution topicThresholdDistribution;
+    private final TokenBucket globalBucket;
+    private final Map<String, Share> shares = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+    private volatile long lastRecomputeNanos;
+
+    public WeightedThroughputLimiter(long maxMessagesPerSecond, TopicThresholdDistribution topicThresholdDistribution) {
+        this(maxMessagesPerSecond, topicThresholdDistribution, System::nanoTime);
+    }
+
+    /**
+     * @param maxMessagesPerSecond
+     * @param topicThresholdDistribution
+     * @param nanoClock source of {@link System#nanoTime()} like timestamps
+     */
+    public WeightedThroughputLimiter(long maxMessagesPerSecond, TopicThresholdDistribution topicThresholdDistribution,
+                                     LongSupplier nanoClock) {
+        this.maxMessagesPerSecond = maxMessagesPerSecond;
+        this.topicThresholdDistribution = topicThresholdDistribution;
+        this.nanoClock = nanoClock;
+        this.lastRecomputeNanos = nanoClock.getAsLong();
+        this.globalBucket = new TokenBucket(maxMessagesPerSecond, lastRecomputeNanos);
+    }
+
+    /**
+     * Accounts a received message of the topic and returns the delay in millis before the topic can be consumed
+     * again, zero if the topic is within its share
+     */
+    public long acquire(String topic) {
+        long now = nanoClock.getAsLong();
+        Share share = shares.get(topic);
+        if (share == null) {
+            share = shares.computeIfAbsent(topic, key -> new Share(topicThresholdDistribution.getWeight(key), now));
+            recomputeShares(now);
+        } else {
+            share.lastActiveNanos = now;
+            if (now - lastRecomputeNanos > RECOMPUTE_INTERVAL_NANOS) {
+                recomputeShares(now);
+            }
+        }
+        return TokenBucket.toDelayMs(Math.max(share.bucket.acquire(1, now), globalBucket.acquire(1, now)));
+    }
+
+    /**
+     * Returns the delay in millis before the topic can be consumed again without accounting any message
+     */
+    public long getDelayMs(String topic) {
+        long now = nanoClock.getAsLong();
+        Share share = shares.get(topic);
+        long delayNanos = globalBucket.acquire(0, now);
+        if (share != null) {
+            delayNanos = Math.max(delayNanos, share.bucket.acquire(0, now));
+        }
+        return TokenBucket.toDelayMs(delayNanos);
+    }
+
+    /**
+     * Returns the current rate in messages per second allotted to the topic, zero if the topic has not been active
+     */
+    public double getShare(String topic) {
+        Share share = shares.get(topic);
+        return share == null ? 0 : share.bucket.getRate();
+    }
+
+    public void removeTopic(String topic) {
+        if (shares.remove(topic) != null) {
+            recomputeShares(nanoClock.getAsLong());
+        }
+    }
+
+    private synchronized void recomputeShares(long now) {
+        long activeWeights = 0;
+        for (Share share : shares.values()) {
+            if (now - share.lastActiveNanos <= ACTIVITY_WINDOW_NANOS) {
+                activeWeights += share.weight;
+            }
+        }
+        for (Share share : shares.values()) {
+            // idle topics are assigned the share they would get on becoming active
+            long weights = now - share.lastActiveNanos <= ACTIVITY_WINDOW_NANOS ? activeWeights : activeWeights + share.weight;
+            share.bucket.setRate(maxMessagesPerSecond * share.weight / (double) weights, now);
+        }
+        lastRecomputeNanos = now;
+    }
+
+    private class Share {
+        private final int weight;
+        private final TokenBucket bucket;
+        private volatile long lastActiveNanos;
+
+        private Share(int weight, long nowNanos) {
+            this.weight = weight;
+            this.bucket = new TokenBucket(maxMessagesPerSecond, nowNanos);
+            this.lastActiveNanos = nowNanos;
+        }
+    }
+}
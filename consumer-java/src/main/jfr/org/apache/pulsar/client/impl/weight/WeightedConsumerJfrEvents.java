@@ -0,0 +1,156 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event classes behind {@link WeightedConsumerEvents}. Compiled from src/main/jfr against the jdk.jfr module of the
+ * build JDK, apart from the sources released for Java 8, and only loaded on runtimes with JFR.
+ */
+final class WeightedConsumerJfrEvents {
+
+    private WeightedConsumerJfrEvents() {
+    }
+
+    static void topicPaused(String partition, String reason, int messagesInQueue, int threshold, int queueSize) {
+        TopicPausedEvent.emit(partition, reason, messagesInQueue, threshold, queueSize);
+    }
+
+    static void consumersResumed(int resumedConsumers, int heldConsumers, int queueSize) {
+        ConsumersResumedEvent.emit(resumedConsumers, heldConsumers, queueSize);
+    }
+
+    static void incomingMessagesReset(int droppedMessages) {
+        IncomingMessagesResetEvent.emit(droppedMessages);
+    }
+
+    static boolean isThresholdChangeEnabled() {
+        return ThresholdChangedEvent.isRecorded();
+    }
+
+    static void thresholdChanged(String topic, String reason, int previousThreshold, int threshold) {
+        ThresholdChangedEvent.emit(topic, reason, previousThreshold, threshold);
+    }
+
+    @Name("org.apache.pulsar.weighted.TopicPaused")
+    @Label("Topic Paused")
+    @Category({"Pulsar", "Weighted Consumer"})
+    @Enabled(false)
+    @Description("A partition has stopped being received from as its topic breached its threshold or rate limit")
+    static class TopicPausedEvent extends Event {
+        @Label("Partition")
+        String partition;
+        @Label("Reason")
+        String reason;
+        @Label("Messages In Queue")
+        int messagesInQueue;
+        @Label("Threshold")
+        int threshold;
+        @Label("Shared Queue Size")
+        int queueSize;
+
+        static void emit(String partition, String reason, int messagesInQueue, int threshold, int queueSize) {
+            TopicPausedEvent event = new TopicPausedEvent();
+            if (event.shouldCommit()) {
+                event.partition = partition;
+                event.reason = reason;
+                event.messagesInQueue = messagesInQueue;
+                event.threshold = threshold;
+                event.queueSize = queueSize;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("org.apache.pulsar.weighted.ConsumersResumed")
+    @Label("Consumers Resumed")
+    @Category({"Pulsar", "Weighted Consumer"})
+    @Enabled(false)
+    @Description("Paused partitions are received from again as the shared queue has drained")
+    static class ConsumersResumedEvent extends Event {
+        @Label("Resumed Consumers")
+        int resumedConsumers;
+        @Label("Held Consumers")
+        int heldConsumers;
+        @Label("Shared Queue Size")
+        int queueSize;
+
+        static void emit(int resumedConsumers, int heldConsumers, int queueSize) {
+            ConsumersResumedEvent event = new ConsumersResumedEvent();
+            if (event.shouldCommit()) {
+                event.resumedConsumers = resumedConsumers;
+                event.heldConsumers = heldConsumers;
+                event.queueSize = queueSize;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("org.apache.pulsar.weighted.IncomingMessagesReset")
+    @Label("Incoming Messages Reset")
+    @Category({"Pulsar", "Weighted Consumer"})
+    @Enabled(false)
+    @Description("Messages queued in the consumer have been dropped on redelivery or seek")
+    static class IncomingMessagesResetEvent extends Event {
+        @Label("Dropped Messages")
+        int droppedMessages;
+
+        static void emit(int droppedMessages) {
+            IncomingMessagesResetEvent event = new IncomingMessagesResetEvent();
+            if (event.shouldCommit()) {
+                event.droppedMessages = droppedMessages;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("org.apache.pulsar.weighted.ThresholdChanged")
+    @Label("Threshold Changed")
+    @Category({"Pulsar", "Weighted Consumer"})
+    @Enabled(false)
+    @Description("The threshold of a topic has changed at runtime")
+    static class ThresholdChangedEvent extends Event {
+        @Label("Topic")
+        String topic;
+        @Label("Reason")
+        String reason;
+        @Label("Previous Threshold")
+        int previousThreshold;
+        @Label("Threshold")
+        int threshold;
+
+        static boolean isRecorded() {
+            return new ThresholdChangedEvent().isEnabled();
+        }
+
+        static void emit(String topic, String reason, int previousThreshold, int threshold) {
+            ThresholdChangedEvent event = new ThresholdChangedEvent();
+            if (event.shouldCommit()) {
+                event.topic = topic;
+                event.reason = reason;
+                event.previousThreshold = previousThreshold;
+                event.threshold = threshold;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.BatchReceivePolicy;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.apache.pulsar.common.partition.PartitionedTopicMetadata;
+import org.apache.pulsar.common.util.FutureUtil;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Topics and consumer configuration shared by the benchmarks. Topics are weighted 1 to 10 in a cycle, so that
+ * thresholds spread over the whole range
+ */
+final class BenchmarkTopics {
+    static final int BATCH_RECEIVE_SIZE = 100;
+    private static final int MAX_WEIGHT = 10;
+
+    private BenchmarkTopics() {
+    }
+
+    static String name(int index) {
+        return "persistent://benchmark/weighted/topic-" + index;
+    }
+
+    static int weight(int index) {
+        return 1 + index % MAX_WEIGHT;
+    }
+
+    static String[] names(int topics) {
+        String[] names = new String[topics];
+        for (int i = 0; i < topics; i++) {
+            names[i] = name(i);
+        }
+        return names;
+    }
+
+    static WeightedConsumerConfiguration configuration(int topics,
+                                                       WeightedConsumerConfiguration.DistributionStrategy strategy) {
+        WeightedConsumerConfiguration weightConf = new WeightedConsumerConfiguration();
+        weightConf.setDistributionStrategy(strategy);
+        for (int i = 0; i < topics; i++) {
+            weightConf.addTopic(name(i), weight(i));
+        }
+        return weightConf;
+    }
+
+    /**
+     * Configuration of a consumer carrying the given weights but no topics, the topics are to be subscribed with
+     * {@link #subscribeAll} once the consumer is created. Partitions are not auto updated, there is no broker to look
+     * them up from
+     *
+     * @param client
+     * @param weightConf
+     * @param topics filled with the topics to subscribe
+     */
+    static ConsumerConfigurationData<byte[]> consumerConfiguration(PulsarClientImpl client,
+                                                                   WeightedConsumerConfiguration weightConf,
+                                                                   List<String> topics) {
+        ConsumerBuilderImpl<byte[]> builder = new ConsumerBuilderImpl<>(client, Schema.BYTES);
+        builder.subscriptionName("benchmark")
+                .batchReceivePolicy(BatchReceivePolicy.builder()
+                        .maxNumMessages(BATCH_RECEIVE_SIZE)
+                        .timeout(100, TimeUnit.MILLISECONDS)
+                        .build());
+        weightConf.populateBuilder(builder);
+        ConsumerConfigurationData<byte[]> conf = builder.getConf();
+        conf.setReceiverQueueSize(weightConf.getMaxBound());
+        conf.setAutoUpdatePartitions(false);
+        topics.addAll(conf.getTopicNames());
+        conf.getTopicNames().clear();
+        return conf;
+    }
+
+    // Subscribes as non-partitioned with the partition count known upfront, so no lookup is needed
+    static void subscribeAll(List<String> topics,
+                             BiFunction<String, Integer, CompletableFuture<Void>> subscribe) throws Exception {
+        FutureUtil.waitForAll(topics.stream()
+                .map(topic -> subscribe.apply(topic, PartitionedTopicMetadata.NON_PARTITIONED))
+                .collect(Collectors.toList()))
+                .get(30, TimeUnit.SECONDS);
+    }
+}
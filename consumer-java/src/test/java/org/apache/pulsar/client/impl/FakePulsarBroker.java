@@ -0,0 +1,513 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.common.api.proto.CommandAck;
+import org.apache.pulsar.common.api.proto.CommandCloseConsumer;
+import org.apache.pulsar.common.api.proto.CommandConnect;
+import org.apache.pulsar.common.api.proto.CommandFlow;
+import org.apache.pulsar.common.api.proto.CommandGetLastMessageId;
+import org.apache.pulsar.common.api.proto.CommandLookupTopic;
+import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse;
+import org.apache.pulsar.common.api.proto.CommandPartitionedTopicMetadata;
+import org.apache.pulsar.common.api.proto.CommandPing;
+import org.apache.pulsar.common.api.proto.CommandPong;
+import org.apache.pulsar.common.api.proto.CommandRedeliverUnacknowledgedMessages;
+import org.apache.pulsar.common.api.proto.CommandSubscribe;
+import org.apache.pulsar.common.api.proto.CommandUnsubscribe;
+import org.apache.pulsar.common.api.proto.MessageIdData;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.api.proto.ServerError;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.protocol.ByteBufPair;
+import org.apache.pulsar.common.protocol.Commands;
+import org.apache.pulsar.common.protocol.PulsarDecoder;
+import org.apache.pulsar.shade.io.netty.bootstrap.ServerBootstrap;
+import org.apache.pulsar.shade.io.netty.buffer.ByteBuf;
+import org.apache.pulsar.shade.io.netty.buffer.Unpooled;
+import org.apache.pulsar.shade.io.netty.channel.Channel;
+import org.apache.pulsar.shade.io.netty.channel.ChannelHandlerContext;
+import org.apache.pulsar.shade.io.netty.channel.ChannelInitializer;
+import org.apache.pulsar.shade.io.netty.channel.EventLoopGroup;
+import org.apache.pulsar.shade.io.netty.channel.nio.NioEventLoopGroup;
+import org.apache.pulsar.shade.io.netty.channel.socket.SocketChannel;
+import org.apache.pulsar.shade.io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.apache.pulsar.shade.io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.apache.pulsar.shade.io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for a Pulsar broker, speaking enough of the binary protocol over a local socket to serve
+ * consumers of partitioned and non-partitioned topics: connect, lookup, partitioned topic metadata, subscribe, flow,
+ * individual and cumulative acks, redelivery of unacknowledged messages, close, unsubscribe, ping and last message id.
+ * A real {@link PulsarClientImpl} and the consumers built on it run unmodified against it, including permits, ack
+ * timeouts, negative acks and partition updates, so weighted consumers can be exercised end to end offline.
+ * <p>
+ * Topics hold a backlog of generated messages rather than stored ones, and are created on first use. Messages are
+ * dispatched to the consumers of a subscription in turn as long as they have permits, whatever the subscription type.
+ * Producers, batching, compression, schemas, seeks and transactions are not supported, the connection of a client
+ * issuing such a command is closed.
+ * <p>
+ * All state lives on the single event loop of the broker, the public methods hand their work over to it.
+ */
+public class FakePulsarBroker implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(FakePulsarBroker.class);
+    private static final int PAYLOAD_SIZE = 100;
+
+    private final EventLoopGroup eventLoopGroup;
+    private final Channel serverChannel;
+    private final String serviceUrl;
+    private final byte[] payload = new byte[PAYLOAD_SIZE];
+    private final AtomicLong ledgerIds = new AtomicLong();
+    private final Map<String, Integer> partitionCounts = new HashMap<>();
+    private final Map<String, Partition> partitions = new HashMap<>();
+
+    private FakePulsarBroker() throws InterruptedException {
+        this.eventLoopGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("fake-broker"));
+        try {
+            this.serverChannel = new ServerBootstrap()
+                    .group(eventLoopGroup)
+                    .channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline().addLast("frameDecoder", new LengthFieldBasedFrameDecoder(
+                                    Commands.DEFAULT_MAX_MESSAGE_SIZE + Commands.MESSAGE_SIZE_FRAME_PADDING, 0, 4, 0, 4));
+                            ch.pipeline().addLast("byteBufPairEncoder", ByteBufPair.ENCODER);
+                            ch.pipeline().addLast("handler", new ServerConnection());
+                        }
+                    })
+                    .bind(new InetSocketAddress("127.0.0.1", 0))
+                    .sync()
+                    .channel();
+        } catch (InterruptedException | RuntimeException e) {
+            eventLoopGroup.shutdownGracefully();
+            throw e;
+        }
+        this.serviceUrl = "pulsar://127.0.0.1:" + ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    /**
+     * Starts a broker listening on an ephemeral port of the loopback interface
+     */
+    public static FakePulsarBroker start() throws InterruptedException {
+        return new FakePulsarBroker();
+    }
+
+    public String getServiceUrl() {
+        return serviceUrl;
+    }
+
+    /**
+     * Creates a partitioned topic, or increases the partitions of an existing one. Clients pick the new partitions up
+     * with their next partition update
+     *
+     * @param topic
+     * @param numPartitions
+     */
+    public void setPartitions(String topic, int numPartitions) {
+        String name = TopicName.get(topic).toString();
+        call(() -> {
+            Integer current = partitionCounts.get(name);
+            if (current != null && current > numPartitions) {
+                throw new IllegalArgumentException("Partitions of " + name + " can not be decreased from " + current);
+            }
+            partitionCounts.put(name, numPartitions);
+            return null;
+        });
+    }
+
+    /**
+     * Publishes messages to a topic, spread evenly over its partitions when it is partitioned
+     *
+     * @param topic
+     * @param messages
+     */
+    public void publish(String topic, long messages) {
+        String name = TopicName.get(topic).toString();
+        call(() -> {
+            Integer numPartitions = partitionCounts.get(name);
+            if (numPartitions == null || numPartitions == 0) {
+                partition(name).publish(messages);
+                return null;
+            }
+            TopicName topicName = TopicName.get(name);
+            for (int i = 0; i < numPartitions; i++) {
+                long share = messages / numPartitions + (i < messages % numPartitions ? 1 : 0);
+                if (share > 0) {
+                    partition(topicName.getPartition(i).toString()).publish(share);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Messages of a topic not yet acknowledged on the subscription, summed over the partitions of the topic
+     *
+     * @param topic
+     * @param subscription
+     */
+    public long getBacklog(String topic, String subscription) {
+        String name = TopicName.get(topic).toString();
+        return call(() -> {
+            Integer numPartitions = partitionCounts.get(name);
+            if (numPartitions == null || numPartitions == 0) {
+                return partition(name).getBacklog(subscription);
+            }
+            long backlog = 0;
+            for (int i = 0; i < numPartitions; i++) {
+                backlog += partition(TopicName.get(name).getPartition(i).toString()).getBacklog(subscription);
+            }
+            return backlog;
+        });
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverChannel.close().syncUninterruptibly();
+        } finally {
+            eventLoopGroup.shutdownGracefully();
+        }
+    }
+
+    private <V> V call(Callable<V> task) {
+        try {
+            return eventLoopGroup.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Partition partition(String name) {
+        return partitions.computeIfAbsent(name, Partition::new);
+    }
+
+    private int getPartitionCount(String topic) {
+        Integer numPartitions = partitionCounts.get(TopicName.get(topic).toString());
+        return numPartitions == null ? 0 : numPartitions;
+    }
+
+    // messages of a partition are generated on the fly, only the time of every publish is kept
+    private class Partition {
+        private final String name;
+        private final int partitionIndex;
+        private final long ledgerId = ledgerIds.incrementAndGet();
+        private final TreeMap<Long, Long> publishTimes = new TreeMap<>();
+        private final Map<String, Subscription> subscriptions = new HashMap<>();
+        private long published;
+
+        private Partition(String name) {
+            this.name = name;
+            this.partitionIndex = TopicName.get(name).getPartitionIndex();
+        }
+
+        private void publish(long messages) {
+            publishTimes.put(published, System.currentTimeMillis());
+            published += messages;
+            subscriptions.values().forEach(Subscription::dispatch);
+        }
+
+        private long getBacklog(String subscriptionName) {
+            Subscription subscription = subscriptions.get(subscriptionName);
+            return subscription == null ? published : subscription.getBacklog();
+        }
+
+        private ByteBufPair newMessage(long consumerId, long entryId, int redeliveryCount) {
+            MessageMetadata metadata = new MessageMetadata()
+                    .setProducerName("fake-broker")
+                    .setSequenceId(entryId)
+                    .setPublishTime(publishTimes.floorEntry(entryId).getValue())
+                    .setUncompressedSize(payload.length);
+            ByteBuf metadataAndPayload = Commands.serializeMetadataAndPayload(Commands.ChecksumType.Crc32c, metadata,
+                    Unpooled.wrappedBuffer(payload));
+            return Commands.newMessage(consumerId, ledgerId, entryId, partitionIndex, redeliveryCount,
+                    metadataAndPayload, null);
+        }
+    }
+
+    private class Subscription {
+        private final Partition partition;
+        private final String name;
+        private final List<ServerConsumer> consumers = new ArrayList<>();
+        private final TreeSet<Long> pendingRedelivery = new TreeSet<>();
+        private final Map<Long, Integer> redeliveryCounts = new HashMap<>();
+        private long readPosition;
+        private int nextConsumer;
+
+        private Subscription(Partition partition, String name, long readPosition) {
+            this.partition = partition;
+            this.name = name;
+            this.readPosition = readPosition;
+        }
+
+        private long getBacklog() {
+            long unacked = 0;
+            for (ServerConsumer consumer : consumers) {
+                unacked += consumer.unacked.size();
+            }
+            return partition.published - readPosition + pendingRedelivery.size() + unacked;
+        }
+
+        private long getMarkDeletePosition() {
+            long position = readPosition;
+            if (!pendingRedelivery.isEmpty()) {
+                position = Math.min(position, pendingRedelivery.first());
+            }
+            for (ServerConsumer consumer : consumers) {
+                if (!consumer.unacked.isEmpty()) {
+                    position = Math.min(position, consumer.unacked.first());
+                }
+            }
+            return position - 1;
+        }
+
+        private void redeliver(Set<Long> entryIds) {
+            for (Long entryId : entryIds) {
+                pendingRedelivery.add(entryId);
+                redeliveryCounts.merge(entryId, 1, Integer::sum);
+            }
+            dispatch();
+        }
+
+        // hands the next messages to consumers with permits in turn, redeliveries first
+        private void dispatch() {
+            Set<ServerConsumer> written = new HashSet<>();
+            while (!consumers.isEmpty() && (!pendingRedelivery.isEmpty() || readPosition < partition.published)) {
+                ServerConsumer consumer = null;
+                for (int i = 0; i < consumers.size() && consumer == null; i++) {
+                    ServerConsumer candidate = consumers.get((nextConsumer + i) % consumers.size());
+                    if (candidate.permits > 0) {
+                        consumer = candidate;
+                        nextConsumer = (nextConsumer + i + 1) % consumers.size();
+                    }
+                }
+                if (consumer == null) {
+                    break;
+                }
+                long entryId = pendingRedelivery.isEmpty() ? readPosition++ : pendingRedelivery.pollFirst();
+                Integer redeliveryCount = redeliveryCounts.get(entryId);
+                consumer.permits--;
+                consumer.unacked.add(entryId);
+                consumer.ctx.write(partition.newMessage(consumer.consumerId, entryId,
+                        redeliveryCount == null ? 0 : redeliveryCount));
+                written.add(consumer);
+            }
+            written.forEach(consumer -> consumer.ctx.flush());
+        }
+    }
+
+    private static class ServerConsumer {
+        private final long consumerId;
+        private final ChannelHandlerContext ctx;
+        private final Subscription subscription;
+        private final TreeSet<Long> unacked = new TreeSet<>();
+        private int permits;
+
+        private ServerConsumer(long consumerId, ChannelHandlerContext ctx, Subscription subscription) {
+            this.consumerId = consumerId;
+            this.ctx = ctx;
+            this.subscription = subscription;
+        }
+
+        // returns the unacknowledged messages to the subscription
+        private void detach() {
+            subscription.consumers.remove(this);
+            if (!unacked.isEmpty()) {
+                Set<Long> entryIds = new HashSet<>(unacked);
+                unacked.clear();
+                subscription.redeliver(entryIds);
+            }
+        }
+    }
+
+    private class ServerConnection extends PulsarDecoder {
+        private final Map<Long, ServerConsumer> consumers = new HashMap<>();
+        private ChannelHandlerContext ctx;
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            this.ctx = ctx;
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            consumers.values().forEach(ServerConsumer::detach);
+            consumers.clear();
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.warn("[{}] Closing connection: {}", ctx.channel().remoteAddress(), cause.toString());
+            ctx.close();
+        }
+
+        @Override
+        protected void messageReceived() {
+        }
+
+        @Override
+        protected void handleConnect(CommandConnect connect) {
+            ctx.writeAndFlush(Commands.newConnected(connect.getProtocolVersion(), Commands.DEFAULT_MAX_MESSAGE_SIZE));
+        }
+
+        @Override
+        protected void handlePing(CommandPing ping) {
+            ctx.writeAndFlush(Commands.newPong());
+        }
+
+        @Override
+        protected void handlePong(CommandPong pong) {
+        }
+
+        @Override
+        protected void handleLookup(CommandLookupTopic lookup) {
+            ctx.writeAndFlush(Commands.newLookupResponse(serviceUrl, null, true,
+                    CommandLookupTopicResponse.LookupType.Connect, lookup.getRequestId(), false));
+        }
+
+        @Override
+        protected void handlePartitionMetadataRequest(CommandPartitionedTopicMetadata partitionMetadata) {
+            ctx.writeAndFlush(Commands.newPartitionMetadataResponse(getPartitionCount(partitionMetadata.getTopic()),
+                    partitionMetadata.getRequestId()));
+        }
+
+        @Override
+        protected void handleSubscribe(CommandSubscribe subscribe) {
+            if (consumers.containsKey(subscribe.getConsumerId())) {
+                ctx.writeAndFlush(Commands.newError(subscribe.getRequestId(), ServerError.ConsumerBusy,
+                        "Consumer " + subscribe.getConsumerId() + " is already connected"));
+                return;
+            }
+            Partition partition = partition(TopicName.get(subscribe.getTopic()).toString());
+            Subscription subscription = partition.subscriptions.computeIfAbsent(subscribe.getSubscription(),
+                    name -> new Subscription(partition, name,
+                            subscribe.getInitialPosition() == CommandSubscribe.InitialPosition.Earliest
+                                    ? 0 : partition.published));
+            ServerConsumer consumer = new ServerConsumer(subscribe.getConsumerId(), ctx, subscription);
+            subscription.consumers.add(consumer);
+            consumers.put(consumer.consumerId, consumer);
+            ctx.writeAndFlush(Commands.newSuccess(subscribe.getRequestId()));
+        }
+
+        @Override
+        protected void handleFlow(CommandFlow flow) {
+            ServerConsumer consumer = consumers.get(flow.getConsumerId());
+            if (consumer != null) {
+                consumer.permits += flow.getMessagePermits();
+                consumer.subscription.dispatch();
+            }
+        }
+
+        @Override
+        protected void handleAck(CommandAck ack) {
+            ServerConsumer consumer = consumers.get(ack.getConsumerId());
+            if (consumer == null) {
+                return;
+            }
+            for (int i = 0; i < ack.getMessageIdsCount(); i++) {
+                MessageIdData messageId = ack.getMessageIdAt(i);
+                if (ack.getAckType() == CommandAck.AckType.Cumulative) {
+                    consumer.unacked.headSet(messageId.getEntryId(), true).clear();
+                } else {
+                    consumer.unacked.remove(messageId.getEntryId());
+                }
+                consumer.subscription.redeliveryCounts.remove(messageId.getEntryId());
+            }
+            if (ack.hasRequestId()) {
+                ctx.writeAndFlush(Commands.newAckResponse(ack.getRequestId(), null, null, ack.getConsumerId()));
+            }
+        }
+
+        @Override
+        protected void handleRedeliverUnacknowledged(CommandRedeliverUnacknowledgedMessages redeliver) {
+            ServerConsumer consumer = consumers.get(redeliver.getConsumerId());
+            if (consumer == null) {
+                return;
+            }
+            Set<Long> entryIds = new HashSet<>();
+            if (redeliver.getMessageIdsCount() == 0) {
+                entryIds.addAll(consumer.unacked);
+                consumer.unacked.clear();
+            } else {
+                for (int i = 0; i < redeliver.getMessageIdsCount(); i++) {
+                    long entryId = redeliver.getMessageIdAt(i).getEntryId();
+                    if (consumer.unacked.remove(entryId)) {
+                        entryIds.add(entryId);
+                    }
+                }
+            }
+            consumer.subscription.redeliver(entryIds);
+        }
+
+        @Override
+        protected void handleGetLastMessageId(CommandGetLastMessageId getLastMessageId) {
+            ServerConsumer consumer = consumers.get(getLastMessageId.getConsumerId());
+            if (consumer == null) {
+                ctx.writeAndFlush(Commands.newError(getLastMessageId.getRequestId(), ServerError.ConsumerNotFound,
+                        "Consumer " + getLastMessageId.getConsumerId() + " not found"));
+                return;
+            }
+            Partition partition = consumer.subscription.partition;
+            ctx.writeAndFlush(Commands.newGetLastMessageIdResponse(getLastMessageId.getRequestId(), partition.ledgerId,
+                    partition.published - 1, partition.partitionIndex, -1, partition.ledgerId,
+                    consumer.subscription.getMarkDeletePosition()));
+        }
+
+        @Override
+        protected void handleCloseConsumer(CommandCloseConsumer closeConsumer) {
+            ServerConsumer consumer = consumers.remove(closeConsumer.getConsumerId());
+            if (consumer != null) {
+                consumer.detach();
+            }
+            ctx.writeAndFlush(Commands.newSuccess(closeConsumer.getRequestId()));
+        }
+
+        @Override
+        protected void handleUnsubscribe(CommandUnsubscribe unsubscribe) {
+            ServerConsumer consumer = consumers.remove(unsubscribe.getConsumerId());
+            if (consumer != null) {
+                consumer.detach();
+                if (consumer.subscription.consumers.isEmpty()) {
+                    consumer.subscription.partition.subscriptions.remove(consumer.subscription.name);
+                }
+            }
+            ctx.writeAndFlush(Commands.newSuccess(unsubscribe.getRequestId()));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.api.SubscriptionInitialPosition;
+import org.apache.pulsar.client.api.SubscriptionType;
+import org.apache.pulsar.common.naming.TopicName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs a weighted consumer on a real client against a {@link FakePulsarBroker}, covering subscribe, receive and
+ * acknowledge over the binary protocol, partitions added while the consumer runs, and poll interrupted.
+ */
+public class FakePulsarBrokerTest {
+    private static final String PARTITIONED = "persistent://public/default/test-partitioned";
+    private static final String NON_PARTITIONED = "persistent://public/default/test-non-partitioned";
+    private static final String SUBSCRIPTION = "test";
+    private static final long BACKLOG = 1_000;
+    private static final long TIMEOUT_MS = 30_000;
+
+    private FakePulsarBroker broker;
+    private PulsarClient client;
+
+    @Before
+    public void setup() throws Exception {
+        broker = FakePulsarBroker.start();
+        client = PulsarClient.builder()
+                .serviceUrl(broker.getServiceUrl())
+                .statsInterval(0, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        broker.close();
+    }
+
+    @Test
+    public void testReceiveAndAcknowledge() throws Exception {
+        broker.setPartitions(PARTITIONED, 2);
+        broker.publish(PARTITIONED, BACKLOG);
+        broker.publish(NON_PARTITIONED, BACKLOG);
+        try (Consumer<byte[]> consumer = subscribe()) {
+            Map<String, Long> received = receiveAndAcknowledge(consumer, 2 * BACKLOG,
+                    message -> TopicName.get(message.getTopicName()).getPartitionedTopicName());
+            assertEquals(BACKLOG, (long) received.getOrDefault(PARTITIONED, 0L));
+            assertEquals(BACKLOG, (long) received.getOrDefault(NON_PARTITIONED, 0L));
+            assertEquals(0, awaitBacklog(PARTITIONED));
+            assertEquals(0, awaitBacklog(NON_PARTITIONED));
+        }
+    }
+
+    @Test
+    public void testPartitionsAdded() throws Exception {
+        broker.setPartitions(PARTITIONED, 2);
+        broker.publish(NON_PARTITIONED, BACKLOG);
+        try (Consumer<byte[]> consumer = subscribe()) {
+            receiveAndAcknowledge(consumer, BACKLOG, Message::getTopicName);
+            broker.setPartitions(PARTITIONED, 4);
+            broker.publish(PARTITIONED, BACKLOG);
+            Map<String, Long> received = receiveAndAcknowledge(consumer, BACKLOG, Message::getTopicName);
+            for (int i = 0; i < 4; i++) {
+                assertEquals("messages of partition " + i, BACKLOG / 4,
+                        (long) received.getOrDefault(TopicName.get(PARTITIONED).getPartition(i).toString(), 0L));
+            }
+            assertEquals(0, awaitBacklog(PARTITIONED));
+        }
+    }
+
+    @Test
+    public void testPollInterrupted() throws Exception {
+        broker.publish(NON_PARTITIONED, BACKLOG);
+        try (Consumer<byte[]> consumer = subscribe()) {
+            // waits for more messages than published until interrupted
+            Thread pollingThread = Thread.currentThread();
+            Thread interrupter = new Thread(() -> {
+                try {
+                    Thread.sleep(2_000);
+                    pollingThread.interrupt();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            interrupter.start();
+            Map<String, List<Message<byte[]>>> polled = ((WeightedMultiTopicsConsumerImpl<byte[]>) consumer)
+                    .poll(Duration.ofMillis(TIMEOUT_MS), (int) BACKLOG * 2, Long.MAX_VALUE);
+            // cleared before joining, which would throw on it
+            assertTrue("interrupt status", Thread.interrupted());
+            interrupter.join();
+            assertFalse("messages taken before the interrupt", polled.isEmpty());
+            long count = 0;
+            for (Message<byte[]> message : polled.get(NON_PARTITIONED)) {
+                consumer.acknowledge(message);
+                count++;
+            }
+            Map<String, Long> received = receiveAndAcknowledge(consumer, BACKLOG - count, Message::getTopicName);
+            assertEquals(BACKLOG - count, (long) received.getOrDefault(NON_PARTITIONED, 0L));
+            assertEquals(0, awaitBacklog(NON_PARTITIONED));
+        }
+    }
+
+    private Consumer<byte[]> subscribe() throws Exception {
+        return new WeightedConsumerBuilder<>(client, Schema.BYTES)
+                .topic(PARTITIONED, 2)
+                .topic(NON_PARTITIONED, 1)
+                .subscriptionName(SUBSCRIPTION)
+                .subscriptionType(SubscriptionType.Shared)
+                .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
+                .autoUpdatePartitionsInterval(1, TimeUnit.SECONDS)
+                .subscribe();
+    }
+
+    // receives until the given count or the timeout, and counts the messages by the key of the message
+    private static Map<String, Long> receiveAndAcknowledge(Consumer<byte[]> consumer, long messages,
+                                                           Function<Message<byte[]>, String> key) throws Exception {
+        Map<String, Long> received = new TreeMap<>();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        long count = 0;
+        while (count < messages && System.currentTimeMillis() < deadline) {
+            Message<byte[]> message = consumer.receive(1, TimeUnit.SECONDS);
+            if (message != null) {
+                received.merge(key.apply(message), 1L, Long::sum);
+                consumer.acknowledge(message);
+                count++;
+            }
+        }
+        return received;
+    }
+
+    // waits for the backlog to drain and returns what is left of it
+    private long awaitBacklog(String topic) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        long backlog;
+        while ((backlog = broker.getBacklog(topic, SUBSCRIPTION)) != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        return backlog;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sub-consumer serving its backlog from memory, as if its receiver queue always held the next message. Messages are
+ * built upfront and cycled through, so allocations measured are those of the parent consumer. Once the backlog is
+ * exhausted the receive stays pending until more messages arrive, an idle sub-consumer is one with no backlog at all.
+ * Receives are only issued from the pinned executor of the parent and arrivals only from the simulation thread, which
+ * runs that executor, so the position needs no synchronization.
+ */
+class InMemoryConsumerImpl<T> extends ConsumerImpl<T> {
+    private static final int MESSAGE_POOL_SIZE = 1024;
+    private static final int PAYLOAD_SIZE = 100;
+    private final MessageImpl<T>[] messages;
+    private long remaining;
+    private int next;
+    private CompletableFuture<Message<T>> pendingReceive;
+
+    @SuppressWarnings("unchecked")
+    InMemoryConsumerImpl(PulsarClientImpl client, String topic, ConsumerConfigurationData<T> conf, int partitionIndex,
+                         CompletableFuture<Consumer<T>> subscribeFuture, Schema<T> schema, long backlog) {
+        super(client, topic, conf, client.externalExecutorProvider(), partitionIndex, true, subscribeFuture, null, 0,
+                schema, null, true);
+        this.remaining = backlog;
+        this.messages = new MessageImpl[MESSAGE_POOL_SIZE];
+        long publishTime = System.currentTimeMillis();
+        for (int i = 0; i < messages.length; i++) {
+            MessageMetadata metadata = new MessageMetadata()
+                    .setProducerName("benchmark")
+                    .setSequenceId(i)
+                    .setPublishTime(publishTime);
+            MessageImpl<T> message = MessageImpl.create(metadata, ByteBuffer.wrap(new byte[PAYLOAD_SIZE]), schema, topic);
+            message.setMessageId(new MessageIdImpl(0, i, partitionIndex));
+            messages[i] = message;
+        }
+        setState(State.Ready);
+        subscribeFuture.complete(this);
+    }
+
+    MessageImpl<T> nextMessage() {
+        MessageImpl<T> message = messages[next];
+        next = next + 1 == messages.length ? 0 : next + 1;
+        return message;
+    }
+
+    @Override
+    protected CompletableFuture<Message<T>> internalReceiveAsync() {
+        if (remaining <= 0) {
+            pendingReceive = new CompletableFuture<>();
+            return pendingReceive;
+        }
+        remaining--;
+        return CompletableFuture.completedFuture(nextMessage());
+    }
+
+    /**
+     * Adds newly published messages to the backlog, completing a pending receive
+     *
+     * @param messages
+     */
+    void addBacklog(long messages) {
+        remaining += messages;
+        if (pendingReceive != null && remaining > 0) {
+            CompletableFuture<Message<T>> receive = pendingReceive;
+            pendingReceive = null;
+            remaining--;
+            receive.complete(nextMessage());
+        }
+    }
+
+    long getBacklog() {
+        return remaining;
+    }
+
+    // Messages are served in a cycle, there is nothing to rewind and no broker to ask
+    @Override
+    public void redeliverUnacknowledgedMessages() {
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Weighted consumer whose sub-consumers serve their backlog from memory, see {@link InMemoryConsumerImpl}
+ */
+class InMemoryWeightedConsumer<T> extends WeightedMultiTopicsConsumerImpl<T> {
+    private volatile ToLongFunction<String> backlog;
+
+    private InMemoryWeightedConsumer(PulsarClientImpl client, ConsumerConfigurationData<T> conf,
+                                     CompletableFuture<Consumer<T>> subscribeFuture, Schema<T> schema) {
+        super(client, conf, client.externalExecutorProvider(), subscribeFuture, schema, null, true);
+    }
+
+    /**
+     * @param client
+     * @param weightConf weights of the topics to subscribe
+     * @param backlog messages served by each sub-consumer, {@link Long#MAX_VALUE} for an endless backlog
+     */
+    static InMemoryWeightedConsumer<byte[]> subscribe(PulsarClientImpl client, WeightedConsumerConfiguration weightConf,
+                                                      long backlog) throws Exception {
+        return subscribe(client, weightConf, topic -> backlog);
+    }
+
+    /**
+     * @param client
+     * @param weightConf weights of the topics to subscribe
+     * @param backlog initial backlog of each topic
+     */
+    static InMemoryWeightedConsumer<byte[]> subscribe(PulsarClientImpl client, WeightedConsumerConfiguration weightConf,
+                                                      ToLongFunction<String> backlog) throws Exception {
+        List<String> topics = new ArrayList<>();
+        ConsumerConfigurationData<byte[]> conf = BenchmarkTopics.consumerConfiguration(client, weightConf, topics);
+        CompletableFuture<Consumer<byte[]>> subscribeFuture = new CompletableFuture<>();
+        InMemoryWeightedConsumer<byte[]> consumer = new InMemoryWeightedConsumer<>(client, conf, subscribeFuture,
+                Schema.BYTES);
+        consumer.backlog = backlog;
+        subscribeFuture.get(30, TimeUnit.SECONDS);
+        BenchmarkTopics.subscribeAll(topics, consumer::subscribeAsync);
+        return consumer;
+    }
+
+    @Override
+    LongSupplier nanoClock() {
+        return OfflinePulsarClient.nanoClock(client);
+    }
+
+    @Override
+    ConsumerImpl<T> newSubConsumer(String topicName, ConsumerConfigurationData<T> configurationData, int partitionIndex,
+                                   CompletableFuture<Consumer<T>> subFuture, MessageId startMessageId, Schema<T> schema,
+                                   boolean createIfDoesNotExist, long startMessageRollbackDurationInSec) {
+        return new InMemoryConsumerImpl<>(client, topicName, configurationData, partitionIndex, subFuture, schema,
+                backlog.applyAsLong(topicName));
+    }
+}
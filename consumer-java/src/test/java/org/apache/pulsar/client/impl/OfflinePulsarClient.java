@@ -0,0 +1,115 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
+import org.apache.pulsar.common.util.netty.EventLoopUtil;
+import org.apache.pulsar.shade.io.netty.channel.EventLoopGroup;
+import org.apache.pulsar.shade.io.netty.util.Timer;
+import org.apache.pulsar.shade.io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.LongSupplier;
+
+/**
+ * Pulsar client which never reaches a broker. Connections, and the lookups which go through them, stay pending
+ * forever, so consumers created on it keep connecting without any network traffic or reconnection backoff.
+ */
+public class OfflinePulsarClient implements AutoCloseable {
+    private final EventLoopGroup eventLoopGroup;
+    private final PulsarClientImpl client;
+
+    public OfflinePulsarClient() throws PulsarClientException {
+        this(null);
+    }
+
+    /**
+     * @param virtualTime runs the internal tasks and timeouts of consumers in place of the client executors and timer,
+     *                    so that they can be driven from a simulation thread, or null
+     */
+    OfflinePulsarClient(VirtualTimeExecutor virtualTime) throws PulsarClientException {
+        ClientConfigurationData conf = new ClientConfigurationData();
+        conf.setServiceUrl("pulsar://localhost:6650");
+        conf.setStatsIntervalSeconds(0);
+        this.eventLoopGroup = EventLoopUtil.newEventLoopGroup(1, false, new DefaultThreadFactory("offline-client-io"));
+        OfflineConnectionPool cnxPool = new OfflineConnectionPool(conf, eventLoopGroup);
+        this.client = virtualTime == null ? new PulsarClientImpl(conf, eventLoopGroup, cnxPool)
+                : new VirtualTimeClient(conf, eventLoopGroup, cnxPool, virtualTime);
+    }
+
+    /**
+     * Clock for the consumers of the given client, virtual if the client runs in virtual time
+     *
+     * @param client
+     */
+    static LongSupplier nanoClock(PulsarClientImpl client) {
+        if (client instanceof VirtualTimeClient) {
+            return ((VirtualTimeClient) client).virtualTime::nowNanos;
+        }
+        return System::nanoTime;
+    }
+
+    public PulsarClientImpl getClient() {
+        return client;
+    }
+
+    @Override
+    public void close() throws PulsarClientException {
+        try {
+            client.close();
+        } finally {
+            eventLoopGroup.shutdownGracefully();
+        }
+    }
+
+    private static class VirtualTimeClient extends PulsarClientImpl {
+        private final VirtualTimeExecutor virtualTime;
+        private final Timer timer;
+
+        private VirtualTimeClient(ClientConfigurationData conf, EventLoopGroup eventLoopGroup, ConnectionPool cnxPool,
+                                  VirtualTimeExecutor virtualTime) throws PulsarClientException {
+            super(conf, eventLoopGroup, cnxPool);
+            this.virtualTime = virtualTime;
+            this.timer = virtualTime.asTimer();
+        }
+
+        @Override
+        public ExecutorService getInternalExecutorService() {
+            return virtualTime;
+        }
+
+        @Override
+        public Timer timer() {
+            return timer;
+        }
+    }
+
+    private static class OfflineConnectionPool extends ConnectionPool {
+
+        private OfflineConnectionPool(ClientConfigurationData conf, EventLoopGroup eventLoopGroup)
+                throws PulsarClientException {
+            super(conf, eventLoopGroup);
+        }
+
+        @Override
+        public CompletableFuture<ClientCnx> getConnection(InetSocketAddress logicalAddress,
+                                                          InetSocketAddress physicalAddress) {
+            return new CompletableFuture<>();
+        }
+    }
+}
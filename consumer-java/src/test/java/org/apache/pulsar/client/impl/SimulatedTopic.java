@@ -0,0 +1,49 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+/**
+ * Load of a topic in a {@link WeightedConsumerSimulator} run: the backlog present at the start, the rate at which
+ * messages are published during the run and the time the application spends processing each message
+ */
+class SimulatedTopic {
+    private final String topic;
+    private final long initialBacklog;
+    private final double arrivalsPerSecond;
+    private final long processingMicros;
+
+    SimulatedTopic(String topic, long initialBacklog, double arrivalsPerSecond, long processingMicros) {
+        this.topic = topic;
+        this.initialBacklog = initialBacklog;
+        this.arrivalsPerSecond = arrivalsPerSecond;
+        this.processingMicros = processingMicros;
+    }
+
+    String getTopic() {
+        return topic;
+    }
+
+    long getInitialBacklog() {
+        return initialBacklog;
+    }
+
+    double getArrivalsPerSecond() {
+        return arrivalsPerSecond;
+    }
+
+    long getProcessingMicros() {
+        return processingMicros;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks in a {@link WeightedConsumerSimulator} run that the consumer wide throughput cap of
+ * {@link WeightedConsumerConfiguration#setMaxMessagesPerSecond(long)} is respected and divided in proportion to the
+ * weights. Workers could process 4000 messages per second, so the cap is what bounds throughput. The first second
+ * is skipped, as buckets start with a second worth of tokens.
+ */
+public class ThroughputCapTest {
+    private static final long CAP = 600;
+    private static final long DURATION_MS = 30_000;
+    private static final double CAP_TOLERANCE = 0.02;
+    private static final double SHARE_TOLERANCE = 0.02;
+
+    @Test
+    public void testCapSplitByWeight() throws Exception {
+        check(new long[]{1_000_000, 1_000_000, 1_000_000}, new double[]{1 / 6.0, 2 / 6.0, 3 / 6.0});
+    }
+
+    // the share of an idle topic goes to the others
+    @Test
+    public void testCapOfIdleTopicRedistributed() throws Exception {
+        check(new long[]{1_000_000, 1_000_000, 0}, new double[]{1 / 3.0, 2 / 3.0, 0});
+    }
+
+    private static void check(long[] backlogs, double[] expectedShares) throws Exception {
+        WeightedConsumerConfiguration weightConf = new WeightedConsumerConfiguration();
+        weightConf.setDistributionStrategy(WeightedConsumerConfiguration.DistributionStrategy.LINEAR);
+        weightConf.setMinBound(100);
+        weightConf.setMaxBound(1000);
+        weightConf.setMaxMessagesPerSecond(CAP);
+        List<SimulatedTopic> topics = new ArrayList<>();
+        for (int i = 0; i < backlogs.length; i++) {
+            weightConf.addTopic(BenchmarkTopics.name(i), i + 1);
+            topics.add(new SimulatedTopic(BenchmarkTopics.name(i), backlogs[i], 0, 1_000));
+        }
+        List<long[]> intervals = new WeightedConsumerSimulator(weightConf, topics, 4, 1000)
+                .run(DURATION_MS, new PrintStream(new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                    }
+                }));
+
+        assertEquals(DURATION_MS / 1000, intervals.size());
+        for (int interval = 1; interval < intervals.size(); interval++) {
+            long[] consumed = intervals.get(interval);
+            long total = Arrays.stream(consumed).sum();
+            assertEquals("messages in second " + (interval + 1), CAP, total, CAP * CAP_TOLERANCE);
+            for (int i = 0; i < consumed.length; i++) {
+                assertEquals("share of topic " + i + " in second " + (interval + 1), expectedShares[i],
+                        (double) consumed[i] / total, SHARE_TOLERANCE);
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.shade.io.netty.util.Timeout;
+import org.apache.pulsar.shade.io.netty.util.Timer;
+import org.apache.pulsar.shade.io.netty.util.TimerTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor which runs its tasks on the calling thread, in virtual time, only when asked to. Tasks run in the order
+ * they are due, and in submission order among tasks due at the same time, so runs replay identically.
+ * Failures of tasks passed to {@link #execute} or to the {@link #asTimer() timer view} are rethrown to the caller
+ * instead of being lost.
+ * Not thread safe, all calls are expected from the single thread driving the simulation.
+ */
+class VirtualTimeExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+    private final PriorityQueue<VirtualTask<?>> tasks = new PriorityQueue<>();
+    private long nowNanos;
+    private long sequence;
+    private boolean shutdown;
+
+    long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nowNanos);
+    }
+
+    long nowNanos() {
+        return nowNanos;
+    }
+
+    /**
+     * Returns a timer scheduling its timeouts on this executor
+     */
+    Timer asTimer() {
+        return new Timer() {
+            @Override
+            public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+                VirtualTimeout timeout = new VirtualTimeout(this, task);
+                timeout.scheduled = enqueue(new VirtualTask<>(() -> {
+                    task.run(timeout);
+                    return null;
+                }, unit.toNanos(delay), 0, true));
+                return timeout;
+            }
+
+            @Override
+            public Set<Timeout> stop() {
+                return Collections.emptySet();
+            }
+        };
+    }
+
+    /**
+     * Runs the tasks due until the given time, including the ones they submit in the meantime, then advances the
+     * clock to that time
+     *
+     * @param timeMillis
+     */
+    void runUntil(long timeMillis) {
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(timeMillis);
+        VirtualTask<?> task;
+        while ((task = tasks.peek()) != null && task.dueNanos <= targetNanos) {
+            tasks.poll();
+            nowNanos = Math.max(nowNanos, task.dueNanos);
+            task.run();
+            if (task.failure != null) {
+                throw new IllegalStateException("Task failed at " + nowMillis() + " ms", task.failure);
+            }
+        }
+        nowNanos = Math.max(nowNanos, targetNanos);
+    }
+
+    /**
+     * Runs the tasks due now, including the ones they submit in the meantime
+     */
+    void runPending() {
+        runUntil(nowMillis());
+    }
+
+    private <V> VirtualTask<V> enqueue(VirtualTask<V> task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        tasks.add(task);
+        return task;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        enqueue(new VirtualTask<>(Executors.callable(command, null), 0, 0, true));
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return enqueue(new VirtualTask<>(Executors.callable(command, null), unit.toNanos(delay), 0, false));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return enqueue(new VirtualTask<>(callable, unit.toNanos(delay), 0, false));
+    }
+
+    // No time passes while a task runs, so fixed rate and fixed delay are the same in virtual time
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        return enqueue(new VirtualTask<>(Executors.callable(command, null), unit.toNanos(initialDelay),
+                unit.toNanos(period), false));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return scheduleAtFixedRate(command, initialDelay, delay, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> pending = new ArrayList<>(tasks);
+        tasks.clear();
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && tasks.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return isTerminated();
+    }
+
+    private static class VirtualTimeout implements Timeout {
+        private final Timer timer;
+        private final TimerTask task;
+        private RunnableScheduledFuture<?> scheduled;
+
+        private VirtualTimeout(Timer timer, TimerTask task) {
+            this.timer = timer;
+            this.task = task;
+        }
+
+        @Override
+        public Timer timer() {
+            return timer;
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return scheduled.isDone() && !scheduled.isCancelled();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return scheduled.isCancelled();
+        }
+
+        @Override
+        public boolean cancel() {
+            return scheduled.cancel(false);
+        }
+    }
+
+    private class VirtualTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+        private final long sequenceNumber = sequence++;
+        private final long periodNanos;
+        private final boolean rethrow;
+        private long dueNanos;
+        private Throwable failure;
+
+        private VirtualTask(Callable<V> callable, long delayNanos, long periodNanos, boolean rethrow) {
+            super(callable);
+            this.dueNanos = nowNanos + Math.max(0, delayNanos);
+            this.periodNanos = periodNanos;
+            this.rethrow = rethrow;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return periodNanos > 0;
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (runAndReset() && !shutdown) {
+                dueNanos += periodNanos;
+                tasks.add(this);
+            }
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            super.setException(t);
+            if (rethrow) {
+                failure = t;
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            tasks.remove(this);
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - nowNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof VirtualTask) {
+                VirtualTask<?> task = (VirtualTask<?>) other;
+                int byDue = Long.compare(dueNanos, task.dueNanos);
+                return byDue != 0 ? byDue : Long.compare(sequenceNumber, task.sequenceNumber);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
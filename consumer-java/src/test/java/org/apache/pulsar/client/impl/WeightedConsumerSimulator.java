@@ -0,0 +1,276 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl;
+
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.impl.weight.TopicThresholdDistribution;
+import org.apache.pulsar.client.impl.weight.TopicThresholdDistributionImpl;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerConfiguration;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.pulsar.shade.com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Replays a load scenario against the dispatch and threshold logic of {@link WeightedMultiTopicsConsumerImpl} without
+ * a broker. Sub-consumers serve their backlog from memory, see {@link InMemoryConsumerImpl}, messages are published to
+ * them at a fixed rate and application workers spend a fixed processing time on every message received. The internal
+ * executor of the consumer is replaced by a {@link VirtualTimeExecutor} stepped in 1 ms ticks from a single thread, so
+ * a scenario produces the same output on every run, whatever the speed of the machine.
+ * <p>
+ * A CSV time series is written every sample interval with, per topic, the threshold, the throughput in messages per
+ * second, the backlog not yet received by the workers and the fairness of the interval. Fairness is the Jain index of
+ * the consumed share of every topic relative to its target share, computed over the topics which still had a backlog
+ * at their sub-consumer by the end of the interval, as weights only decide consumption when topics compete. The target
+ * share is the share of the weights under a consumer wide throughput cap, which the cap divides by weight, and the
+ * share of the thresholds otherwise. Fairness is 1 when consumption follows the target exactly and left empty with
+ * fewer than two competing topics.
+ * <p>
+ * The client timer and the clock of the rate limiters run in virtual time as well, so topic rate limits and the
+ * throughput cap are simulated. Catch up boost, ack coalescing and auto throttle are rejected.
+ */
+public class WeightedConsumerSimulator {
+    private static final long TICK_MICROS = 1000;
+
+    private final WeightedConsumerConfiguration weightConf;
+    private final List<SimulatedTopic> topics;
+    private final int workers;
+    private final long sampleIntervalMs;
+
+    /**
+     * @param weightConf weights of the topics, all simulated topics should be configured
+     * @param topics
+     * @param workers application threads processing the messages received
+     * @param sampleIntervalMs
+     */
+    public WeightedConsumerSimulator(WeightedConsumerConfiguration weightConf, List<SimulatedTopic> topics, int workers,
+                                     long sampleIntervalMs) {
+        checkArgument(workers > 0, "workers should be positive");
+        checkArgument(sampleIntervalMs > 0, "sample interval should be positive");
+        checkArgument(weightConf.getCatchUpCheckIntervalSeconds() <= 0, "catch up boost is not supported in simulation");
+        checkArgument(weightConf.getAckCoalesceTimeMs() <= 0, "ack coalescing is not supported in simulation");
+        checkArgument(!weightConf.isAutoThrottleReceiveQueue(), "auto throttle is not supported in simulation");
+        for (SimulatedTopic topic : topics) {
+            checkArgument(weightConf.getTopicWeights().containsKey(topic.getTopic()), "no weight for topic %s",
+                    topic.getTopic());
+        }
+        checkArgument(topics.size() == weightConf.getTopicWeights().size(), "every weighted topic should be simulated");
+        this.weightConf = weightConf;
+        this.topics = topics;
+        this.workers = workers;
+        this.sampleIntervalMs = sampleIntervalMs;
+    }
+
+    /**
+     * Runs the scenario, writing the time series as CSV to the given stream and a summary to stderr, and returns the
+     * messages consumed from every topic, in the order of the simulated topics, for every sample interval
+     *
+     * @param durationMs virtual duration of the run
+     * @param out
+     */
+    public List<long[]> run(long durationMs, PrintStream out) throws Exception {
+        int n = topics.size();
+        TopicThresholdDistribution thresholds = TopicThresholdDistributionImpl.loadFromConf(weightConf);
+        Map<String, Integer> topicIndexes = new HashMap<>();
+        long[] processingMicros = new long[n];
+        int[] threshold = new int[n];
+        int[] target = new int[n];
+        for (int i = 0; i < n; i++) {
+            SimulatedTopic topic = topics.get(i);
+            topicIndexes.put(topic.getTopic(), i);
+            processingMicros[i] = Math.max(1, topic.getProcessingMicros());
+            threshold[i] = thresholds.getValue(topic.getTopic());
+            target[i] = weightConf.getMaxMessagesPerSecond() > 0 ? thresholds.getWeight(topic.getTopic()) : threshold[i];
+        }
+        long[] arrived = new long[n];
+        long[] consumed = new long[n];
+        long[] intervalConsumed = new long[n];
+        double[] arrivalCarry = new double[n];
+        long[] workerBusyUntilMicros = new long[workers];
+        List<long[]> intervals = new ArrayList<>();
+
+        VirtualTimeExecutor executor = new VirtualTimeExecutor();
+        try (OfflinePulsarClient client = new OfflinePulsarClient(executor)) {
+            InMemoryWeightedConsumer<byte[]> consumer = InMemoryWeightedConsumer.subscribe(client.getClient(),
+                    weightConf, topic -> topics.get(topicIndexes.get(topic)).getInitialBacklog());
+            InMemoryConsumerImpl<?>[] sources = new InMemoryConsumerImpl<?>[n];
+            for (ConsumerImpl<byte[]> subConsumer : consumer.getConsumers()) {
+                sources[topicIndexes.get(subConsumer.getTopic())] = (InMemoryConsumerImpl<?>) subConsumer;
+            }
+            executor.runPending();
+
+            out.println("time_ms,topic,threshold,throughput,backlog,fairness");
+            for (long tick = 0; tick < durationMs; tick++) {
+                executor.runUntil(tick);
+                for (int i = 0; i < n; i++) {
+                    arrivalCarry[i] += topics.get(i).getArrivalsPerSecond() / 1000;
+                    long arrivals = (long) arrivalCarry[i];
+                    if (arrivals > 0) {
+                        arrivalCarry[i] -= arrivals;
+                        arrived[i] += arrivals;
+                        sources[i].addBacklog(arrivals);
+                    }
+                }
+                executor.runPending();
+
+                long tickStartMicros = tick * TICK_MICROS;
+                long tickEndMicros = tickStartMicros + TICK_MICROS;
+                int worker;
+                while ((worker = nextWorker(workerBusyUntilMicros, tickEndMicros)) >= 0) {
+                    long startMicros = Math.max(workerBusyUntilMicros[worker], tickStartMicros);
+                    Message<byte[]> message = consumer.receive(0, TimeUnit.MILLISECONDS);
+                    executor.runPending();
+                    if (message == null) {
+                        // nothing to process until the next tick brings new messages or resumes consumers
+                        workerBusyUntilMicros[worker] = tickEndMicros;
+                        continue;
+                    }
+                    int i = topicIndexes.get(message.getTopicName());
+                    consumed[i]++;
+                    intervalConsumed[i]++;
+                    workerBusyUntilMicros[worker] = startMicros + processingMicros[i];
+                }
+
+                if ((tick + 1) % sampleIntervalMs == 0) {
+                    double fairness = fairness(intervalConsumed, target, sources);
+                    for (int i = 0; i < n; i++) {
+                        out.printf(Locale.ROOT, "%d,%s,%d,%.1f,%d,%s%n", tick + 1, topics.get(i).getTopic(),
+                                threshold[i], intervalConsumed[i] * 1000.0 / sampleIntervalMs,
+                                topics.get(i).getInitialBacklog() + arrived[i] - consumed[i],
+                                Double.isNaN(fairness) ? "" : String.format(Locale.ROOT, "%.4f", fairness));
+                    }
+                    intervals.add(intervalConsumed.clone());
+                    Arrays.fill(intervalConsumed, 0);
+                }
+            }
+            out.flush();
+
+            long total = Arrays.stream(consumed).sum();
+            for (int i = 0; i < n; i++) {
+                System.err.printf(Locale.ROOT, "%s threshold=%d consumed=%d throughput=%.1f/s share=%.3f%n",
+                        topics.get(i).getTopic(), threshold[i], consumed[i], consumed[i] * 1000.0 / durationMs,
+                        total == 0 ? 0 : (double) consumed[i] / total);
+            }
+            double fairness = fairness(consumed, target, sources);
+            System.err.printf(Locale.ROOT, "throughput=%.1f/s%s fairness=%s%n", total * 1000.0 / durationMs,
+                    weightConf.getMaxMessagesPerSecond() > 0 ? " cap=" + weightConf.getMaxMessagesPerSecond() + "/s" : "",
+                    Double.isNaN(fairness) ? "n/a" : String.format(Locale.ROOT, "%.4f", fairness));
+
+            CompletableFuture<Void> closeFuture = consumer.closeAsync();
+            executor.runPending();
+            closeFuture.get(30, TimeUnit.SECONDS);
+            return intervals;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // worker free earliest within the tick, lowest index first so that runs replay identically
+    private static int nextWorker(long[] busyUntilMicros, long tickEndMicros) {
+        int next = -1;
+        for (int w = 0; w < busyUntilMicros.length; w++) {
+            if (busyUntilMicros[w] < tickEndMicros && (next < 0 || busyUntilMicros[w] < busyUntilMicros[next])) {
+                next = w;
+            }
+        }
+        return next;
+    }
+
+    private static double fairness(long[] consumed, int[] target, InMemoryConsumerImpl<?>[] sources) {
+        long consumedTotal = 0;
+        long targetTotal = 0;
+        int competing = 0;
+        for (int i = 0; i < consumed.length; i++) {
+            if (sources[i].getBacklog() > 0) {
+                consumedTotal += consumed[i];
+                targetTotal += target[i];
+                competing++;
+            }
+        }
+        if (competing < 2 || consumedTotal == 0) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (int i = 0; i < consumed.length; i++) {
+            if (sources[i].getBacklog() > 0) {
+                double ratio = ((double) consumed[i] / consumedTotal) / ((double) target[i] / targetTotal);
+                sum += ratio;
+                sumOfSquares += ratio * ratio;
+            }
+        }
+        return sum * sum / (competing * sumOfSquares);
+    }
+
+    /**
+     * Runs one of the scenarios of the test results in the README, with 3 topics weighted 1, 2 and 3 and thresholds
+     * from 100 to 1000. {@code lagging} starts with a large backlog and takes 5 ms to process a message on 4 workers,
+     * {@code tailing} starts with no backlog and processes messages as soon as they are published. {@code capped} is
+     * {@code lagging} with 1 ms of processing, 4000 messages per second of capacity, under a consumer wide cap of 600
+     * messages per second, which should be split 100, 200 and 300 between the topics.
+     * <p>
+     * Arguments: {@code lagging|tailing|capped [durationSeconds] [outputFile]}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: WeightedConsumerSimulator lagging|tailing|capped [durationSeconds] [outputFile]");
+            System.exit(1);
+        }
+        long durationMs = TimeUnit.SECONDS.toMillis(args.length > 1 ? Long.parseLong(args[1]) : 60);
+        WeightedConsumerConfiguration weightConf = new WeightedConsumerConfiguration();
+        weightConf.setDistributionStrategy(WeightedConsumerConfiguration.DistributionStrategy.LINEAR);
+        weightConf.setMinBound(100);
+        weightConf.setMaxBound(1000);
+        if (args[0].equals("capped")) {
+            weightConf.setMaxMessagesPerSecond(600);
+        }
+        List<SimulatedTopic> topics = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String topic = BenchmarkTopics.name(i);
+            weightConf.addTopic(topic, i + 1);
+            switch (args[0]) {
+                case "lagging":
+                    topics.add(new SimulatedTopic(topic, 1_000_000, 0, 5_000));
+                    break;
+                case "capped":
+                    topics.add(new SimulatedTopic(topic, 1_000_000, 0, 1_000));
+                    break;
+                case "tailing":
+                    topics.add(new SimulatedTopic(topic, 0, 100 * (i + 1), 0));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown scenario " + args[0]);
+            }
+        }
+        WeightedConsumerSimulator simulator = new WeightedConsumerSimulator(weightConf, topics, 4, 1000);
+        if (args.length > 2) {
+            try (PrintStream out = new PrintStream(new FileOutputStream(args[2]), false, "UTF-8")) {
+                simulator.run(durationMs, out);
+            }
+        } else {
+            simulator.run(durationMs, System.out);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+package org.apache.pulsar.client.impl.weight;
+
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TopicLagTrackerTest {
+    private static final String PARTITION = "persistent://public/default/test-partition-0";
+    private static final long LAG_TIME_MS = 60_000;
+
+    private static TopicLagTracker lagTracker() {
+        WeightedConsumerConfiguration conf = new WeightedConsumerConfiguration();
+        conf.setCatchUpLagTimeMs(LAG_TIME_MS);
+        return new TopicLagTracker(conf);
+    }
+
+    @Test
+    public void testNothingReceived() {
+        // the last message may have been acknowledged before the consumer started
+        assertFalse(lagTracker().isLagging(PARTITION, new MessageIdImpl(1, 10, -1), 0));
+    }
+
+    @Test
+    public void testCaughtUpSparseTopic() {
+        TopicLagTracker lagTracker = lagTracker();
+        lagTracker.onMessageReceived(PARTITION, new MessageIdImpl(1, 10, -1));
+        assertFalse(lagTracker.isLagging(PARTITION, new MessageIdImpl(1, 10, -1), 10 * LAG_TIME_MS));
+        // a message published after a quiet period, seen before it is received
+        assertFalse(lagTracker.isLagging(PARTITION, new MessageIdImpl(1, 11, -1), 20 * LAG_TIME_MS));
+        lagTracker.onMessageReceived(PARTITION, new MessageIdImpl(1, 11, -1));
+        lagTracker.onMessageReceived(PARTITION, new MessageIdImpl(1, 12, -1));
+        assertFalse(lagTracker.isLagging(PARTITION, new MessageIdImpl(1, 13, -1), 22 * LAG_TIME_MS));
+    }
+
+    @Test
+    public void testBacklogNotReceived() {
+        TopicLagTracker lagTracker = lagTracker();
+        lagTracker.onMessageReceived(PARTITION, new MessageIdImpl(1, 10, -1));
+        assertFalse(lagTracker.isLagging(PARTITION, new MessageIdImpl(1, 1_000, -1), 0));
+        lagTracker.onMessageReceived(PARTITION, new MessageIdImpl(1, 500, -1));
+        assertTrue(lagTracker.isLagging(PARTITION, new MessageIdImpl(1, 2_000, -1), 2 * LAG_TIME_MS));
+        // caught up
+        lagTracker.onMessageReceived(PARTITION, new MessageIdImpl(1, 2_000, -1));
+        assertFalse(lagTracker.isLagging(PARTITION, new MessageIdImpl(1, 2_000, -1), 3 * LAG_TIME_MS));
+    }
+}
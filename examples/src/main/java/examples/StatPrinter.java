@@ -4,6 +4,8 @@ import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.ConsumerStats;
 import org.apache.pulsar.client.impl.ConsumerImpl;
 import org.apache.pulsar.client.impl.MultiTopicsConsumerImpl;
+import org.apache.pulsar.client.impl.WeightedMultiTopicsConsumerImpl;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerStats;
 
 import java.text.DecimalFormat;
 import java.time.Duration;
@@ -21,6 +23,8 @@ public class StatPrinter {
                 print((ConsumerImpl<T>) consumer);
             } else if (consumer instanceof MultiTopicsConsumerImpl) {
                 print((MultiTopicsConsumerImpl<T>) consumer);
+            } else if (consumer instanceof WeightedMultiTopicsConsumerImpl) {
+                print((WeightedMultiTopicsConsumerImpl<T>) consumer);
             }
         } catch (InterruptedException ex) {
             //swallow and exit
@@ -43,6 +47,19 @@ public class StatPrinter {
         consumers.forEach(StatPrinter::print);
     }
 
+    private static <T> void print(WeightedMultiTopicsConsumerImpl<T> consumer) {
+        System.out.println("Weighted Consumer stats\n-----");
+        System.out.printf("Internal-consumers=[%s] [%s] [%s]%n",
+                consumer.getConsumers().size(), consumer.getSubscription(), consumer.getConsumerName());
+        if (consumer.getStats() != null) {
+            print(consumer.getStats());
+        }
+        WeightedConsumerStats weightedStats = consumer.getWeightedStats();
+        if (weightedStats != null) {
+            System.out.println(weightedStats);
+        }
+    }
+
     private static void print(ConsumerStats stats) {
         System.out.printf("Consume Total: %d msgs --- %d bytes --- Pending prefetched messages: %d%n",
                 stats.getTotalMsgsReceived(), stats.getTotalBytesReceived(), stats.getMsgNumInReceiverQueue());
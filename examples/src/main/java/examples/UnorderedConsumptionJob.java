@@ -108,6 +108,7 @@ public class UnorderedConsumptionJob implements Runnable {
     protected Consumer<byte[]> createPriorityConsumer(PulsarClient client) throws PulsarClientException {
         WeightedConsumerBuilder<byte[]> consumerBuilder = new WeightedConsumerBuilder<>(client, Schema.BYTES)
                 .distributionStrategy(WeightedConsumerConfiguration.DistributionStrategy.EXPONENTIAL)
+                .weightedStats(true)
                 .topics(topicWeights);
         return consumerBuilder
                 .subscriptionName(subName)
@@ -0,0 +1,244 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight.prometheus;
+
+import org.apache.pulsar.client.api.ConsumerStats;
+import org.apache.pulsar.client.impl.WeightedMultiTopicsConsumerImpl;
+import org.apache.pulsar.client.impl.weight.LogBucketHistogram;
+import org.apache.pulsar.client.impl.weight.WeightedConsumerStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Renders the stats of registered weighted consumers in the Prometheus text exposition format. Every scrape takes a
+ * snapshot of the weighted stats over an interval kept by this instance, so observed shares cover the interval since
+ * the previous scrape and are not disturbed by other readers of {@link WeightedMultiTopicsConsumerImpl#getWeightedStats()}.
+ * Latency histograms are exposed as Prometheus histograms of their power of two buckets. Per topic metrics are only
+ * present for consumers with weighted stats enabled, and aggregated metrics only for clients with a stats interval.
+ */
+public class WeightedConsumerMetrics {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String PREFIX = "pulsar_weighted_consumer_";
+    private final List<WeightedMultiTopicsConsumerImpl<?>> consumers = new CopyOnWriteArrayList<>();
+    private final Map<WeightedMultiTopicsConsumerImpl<?>, WeightedConsumerStats.Interval> intervals =
+            new ConcurrentHashMap<>();
+
+    public void register(WeightedMultiTopicsConsumerImpl<?> consumer) {
+        intervals.put(consumer, new WeightedConsumerStats.Interval());
+        consumers.add(consumer);
+    }
+
+    public void unregister(WeightedMultiTopicsConsumerImpl<?> consumer) {
+        consumers.remove(consumer);
+        intervals.remove(consumer);
+    }
+
+    private static class ConsumerSnapshot {
+        private final String subscription;
+        private final String consumerName;
+        private final ConsumerStats stats;
+        private final WeightedConsumerStats weightedStats;
+
+        private ConsumerSnapshot(WeightedMultiTopicsConsumerImpl<?> consumer, WeightedConsumerStats.Interval interval) {
+            this.subscription = consumer.getSubscription();
+            this.consumerName = consumer.getConsumerName();
+            this.stats = consumer.getStats();
+            this.weightedStats = consumer.getWeightedStats(interval);
+        }
+    }
+
+    public String scrape() {
+        List<ConsumerSnapshot> snapshots = new ArrayList<>();
+        consumers.forEach(consumer -> {
+            WeightedConsumerStats.Interval interval = intervals.get(consumer);
+            if (interval != null) {
+                snapshots.add(new ConsumerSnapshot(consumer, interval));
+            }
+        });
+        StringBuilder out = new StringBuilder();
+
+        consumerFamily(out, snapshots, "received_messages_total", "counter",
+                "Messages received by the internal consumers", ConsumerStats::getTotalMsgsReceived);
+        consumerFamily(out, snapshots, "received_bytes_total", "counter",
+                "Bytes received by the internal consumers", ConsumerStats::getTotalBytesReceived);
+        consumerFamily(out, snapshots, "receive_failures_total", "counter",
+                "Failed receives", ConsumerStats::getTotalReceivedFailed);
+        consumerFamily(out, snapshots, "acks_sent_total", "counter",
+                "Acknowledgements sent", ConsumerStats::getTotalAcksSent);
+        consumerFamily(out, snapshots, "acks_failed_total", "counter",
+                "Failed acknowledgements", ConsumerStats::getTotalAcksFailed);
+        consumerFamily(out, snapshots, "receiver_queue_messages", "gauge",
+                "Messages prefetched in the receiver queues of the internal consumers",
+                stats -> stats.getMsgNumInReceiverQueue() == null ? 0 : stats.getMsgNumInReceiverQueue());
+
+        weightedConsumerFamily(out, snapshots, "receive_queue_throttled", "gauge",
+                "1 if weighted thresholds are applied on the receiver queues of the internal consumers, 0 if they burst",
+                stats -> stats.isReceiveQueueThrottled() ? 1 : 0);
+        weightedConsumerFamily(out, snapshots, "receive_queue_mode_switches_total", "counter",
+                "Times the receive queue mode has been switched automatically",
+                WeightedConsumerStats::getReceiveQueueModeSwitchCount);
+
+        topicFamily(out, snapshots, "queued_messages", "gauge",
+                "Messages of the topic counted against its threshold", WeightedConsumerStats.TopicStats::getMessagesInQueue);
+        topicFamily(out, snapshots, "threshold_messages", "gauge",
+                "Current threshold of the topic", WeightedConsumerStats.TopicStats::getThreshold);
+        topicFamily(out, snapshots, "pauses_total", "counter",
+                "Times a partition of the topic has been paused", WeightedConsumerStats.TopicStats::getPauseCount);
+        topicFamily(out, snapshots, "paused_seconds_total", "counter",
+                "Time partitions of the topic have spent paused", stats -> stats.getPausedTimeMs() / 1000.0);
+        topicFamily(out, snapshots, "consumed_messages_total", "counter",
+                "Messages of the topic handed out", WeightedConsumerStats.TopicStats::getConsumedMessages);
+        topicFamily(out, snapshots, "observed_share", "gauge",
+                "Fraction of the messages consumed since the previous scrape which belonged to the topic",
+                WeightedConsumerStats.TopicStats::getObservedShare);
+        topicFamily(out, snapshots, "configured_share", "gauge",
+                "Fraction of the sum of configured thresholds which belongs to the topic",
+                WeightedConsumerStats.TopicStats::getConfiguredShare);
+
+        histogramFamily(out, snapshots, "resume_latency_seconds", "Time partitions of the topic stayed paused",
+                WeightedConsumerStats.TopicStats::getResumeLatencyMs, 1e3);
+        histogramFamily(out, snapshots, "dwell_seconds", "Time messages of the topic waited in the consumer",
+                WeightedConsumerStats.TopicStats::getDwellTimeMicros, 1e6);
+        histogramFamily(out, snapshots, "publish_to_receive_seconds", "Time from publish until messages were handed out",
+                WeightedConsumerStats.TopicStats::getPublishToReceiveMs, 1e3);
+        histogramFamily(out, snapshots, "publish_to_ack_seconds", "Time from publish until messages were acknowledged",
+                WeightedConsumerStats.TopicStats::getPublishToAckMs, 1e3);
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void consumerFamily(StringBuilder out, List<ConsumerSnapshot> snapshots, String name, String type,
+                                       String help, ToDoubleFunction<ConsumerStats> value) {
+        boolean headerWritten = false;
+        for (ConsumerSnapshot snapshot : snapshots) {
+            if (snapshot.stats == null) {
+                continue;
+            }
+            if (!headerWritten) {
+                header(out, name, type, help);
+                headerWritten = true;
+            }
+            sample(out, name, labels(snapshot, null, null), value.applyAsDouble(snapshot.stats));
+        }
+    }
+
+    private static void weightedConsumerFamily(StringBuilder out, List<ConsumerSnapshot> snapshots, String name,
+                                               String type, String help, ToDoubleFunction<WeightedConsumerStats> value) {
+        boolean headerWritten = false;
+        for (ConsumerSnapshot snapshot : snapshots) {
+            if (snapshot.weightedStats == null) {
+                continue;
+            }
+            if (!headerWritten) {
+                header(out, name, type, help);
+                headerWritten = true;
+            }
+            sample(out, name, labels(snapshot, null, null), value.applyAsDouble(snapshot.weightedStats));
+        }
+    }
+
+    private static void topicFamily(StringBuilder out, List<ConsumerSnapshot> snapshots, String name, String type,
+                                    String help, ToDoubleFunction<WeightedConsumerStats.TopicStats> value) {
+        boolean headerWritten = false;
+        for (ConsumerSnapshot snapshot : snapshots) {
+            if (snapshot.weightedStats == null) {
+                continue;
+            }
+            for (Map.Entry<String, WeightedConsumerStats.TopicStats> entry : snapshot.weightedStats.getTopics().entrySet()) {
+                if (!headerWritten) {
+                    header(out, name, type, help);
+                    headerWritten = true;
+                }
+                sample(out, name, labels(snapshot, entry.getKey(), null), value.applyAsDouble(entry.getValue()));
+            }
+        }
+    }
+
+    // The power of two buckets are exposed as cumulative buckets bounded by their largest value, up to the highest
+    // bucket holding values. Counts only grow, so a bucket once exposed stays exposed.
+    private static void histogramFamily(StringBuilder out, List<ConsumerSnapshot> snapshots, String name, String help,
+                                        Function<WeightedConsumerStats.TopicStats, LogBucketHistogram.Snapshot> histogram,
+                                        double unitsPerSecond) {
+        boolean headerWritten = false;
+        for (ConsumerSnapshot snapshot : snapshots) {
+            if (snapshot.weightedStats == null) {
+                continue;
+            }
+            for (Map.Entry<String, WeightedConsumerStats.TopicStats> entry : snapshot.weightedStats.getTopics().entrySet()) {
+                LogBucketHistogram.Snapshot values = histogram.apply(entry.getValue());
+                if (values == null || values.getCount() == 0) {
+                    continue;
+                }
+                if (!headerWritten) {
+                    header(out, name, "histogram", help);
+                    headerWritten = true;
+                }
+                int highestBucket = values.getBuckets() - 1;
+                while (values.getCount(highestBucket) == 0) {
+                    highestBucket--;
+                }
+                long cumulativeCount = 0;
+                for (int bucket = 0; bucket <= highestBucket; bucket++) {
+                    cumulativeCount += values.getCount(bucket);
+                    String le = String.valueOf(LogBucketHistogram.upperBound(bucket) / unitsPerSecond);
+                    sample(out, name + "_bucket", labels(snapshot, entry.getKey(), le), cumulativeCount);
+                }
+                sample(out, name + "_bucket", labels(snapshot, entry.getKey(), "+Inf"), values.getCount());
+                sample(out, name + "_sum", labels(snapshot, entry.getKey(), null), values.getSum() / unitsPerSecond);
+                sample(out, name + "_count", labels(snapshot, entry.getKey(), null), values.getCount());
+            }
+        }
+    }
+
+    private static String labels(ConsumerSnapshot snapshot, String topic, String le) {
+        StringBuilder labels = new StringBuilder("{subscription=\"").append(escape(snapshot.subscription))
+                .append("\",consumer=\"").append(escape(snapshot.consumerName)).append('"');
+        if (topic != null) {
+            labels.append(",topic=\"").append(escape(topic)).append('"');
+        }
+        if (le != null) {
+            labels.append(",le=\"").append(le).append('"');
+        }
+        return labels.append('}').toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(PREFIX).append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
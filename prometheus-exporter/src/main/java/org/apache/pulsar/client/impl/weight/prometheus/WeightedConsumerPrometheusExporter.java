@@ -0,0 +1,131 @@
+/*
+ *
+ *  * Copyright 2022-2026, the original author or authors.
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  * http://www.apache.org/licenses/LICENSE-2.0
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ *
+ */
+
+package org.apache.pulsar.client.impl.weight.prometheus;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes {@link WeightedConsumerMetrics} on a /metrics endpoint of an embedded JDK http server, or writes them
+ * periodically to a file for the node exporter textfile collector. Only one scraper should be pointed at an exporter,
+ * as observed shares are computed over the interval since the previous scrape of its metrics.
+ */
+public class WeightedConsumerPrometheusExporter implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(WeightedConsumerPrometheusExporter.class);
+    private final WeightedConsumerMetrics metrics;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ScheduledExecutorService fileWriter;
+
+    public WeightedConsumerPrometheusExporter(WeightedConsumerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public synchronized void startHttpServer(InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Http server already started");
+        }
+        server = HttpServer.create(address, 0);
+        server.createContext("/metrics", this::handle);
+        serverExecutor = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "weighted-metrics-http"));
+        server.setExecutor(serverExecutor);
+        server.start();
+        log.info("Serving weighted consumer metrics on {}", server.getAddress());
+    }
+
+    /**
+     * The file is replaced atomically, so readers never see a partially written scrape
+     *
+     * @param file
+     * @param period
+     * @param unit
+     */
+    public synchronized void startFileWriter(Path file, long period, TimeUnit unit) {
+        if (fileWriter != null) {
+            throw new IllegalStateException("File writer already started");
+        }
+        fileWriter = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "weighted-metrics-file"));
+        fileWriter.scheduleAtFixedRate(() -> writeFile(file), period, period, unit);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", WeightedConsumerMetrics.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to scrape weighted consumer metrics", e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void writeFile(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, metrics.scrape().getBytes(StandardCharsets.UTF_8));
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to write weighted consumer metrics to {}", file, e);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            serverExecutor.shutdownNow();
+            server = null;
+        }
+        if (fileWriter != null) {
+            fileWriter.shutdownNow();
+            fileWriter = null;
+        }
+    }
+}